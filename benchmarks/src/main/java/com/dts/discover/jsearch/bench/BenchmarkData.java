@@ -0,0 +1,33 @@
+package com.dts.discover.jsearch.bench;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+/*
+ * Generated data set shared by the benchmarks. The total number of records can be changed from the command line,
+ * ie. `java -jar target/benchmarks.jar -p records=10000000`, the files are generated once per size under
+ * `target/bench-data` (or the directory given by -Djsearch.bench.data) and reused by the following runs.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkData {
+
+    @Param({"10000", "100000"})
+    public int records;
+
+    public Path dir;
+
+    @Setup
+    public void generate() throws IOException {
+        Path baseDir = Path.of(System.getProperty("jsearch.bench.data", "target/bench-data"));
+        dir = DatasetGenerator.generateIfAbsent(baseDir, records);
+    }
+
+    public String file(String fileName) {
+        return dir.resolve(fileName).toString();
+    }
+}
@@ -0,0 +1,211 @@
+package com.dts.discover.jsearch.bench;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.Random;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/*
+ * Generates users, organizations and tickets with the same schema as the bundled data files. The output only depends
+ * on the number of records and the seed so every run of a benchmark sees exactly the same data. Users and tickets
+ * always refer to an organisation which exists and tickets refer to existing users as submitter and assignee.
+ *
+ * Records are written to the files as they are generated so even 10 million records don't need much memory.
+ *
+ * Usage : DatasetGenerator <output directory> <number of records> [seed]
+ */
+public class DatasetGenerator {
+
+    public static final String USER_FILE = "users.json";
+    public static final String ORG_FILE = "organizations.json";
+    public static final String TICKET_FILE = "tickets.json";
+
+    private static final int FIRST_ORG_ID = 101;
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss '-10:00'");
+    private static final LocalDateTime EPOCH = LocalDateTime.of(2013, 1, 1, 0, 0);
+
+    private static final String[] WORDS = {"Lorem", "ipsum", "dolor", "sit", "amet", "consectetur", "adipisicing",
+            "elit", "sed", "do", "eiusmod", "tempor", "incididunt", "ut", "labore", "et", "dolore", "magna", "aliqua",
+            "Nostrud", "ad", "velit", "cupidatat", "laboris", "nisi", "ex", "exercitation", "proident", "fugiat"};
+    private static final String[] PLACES = {"Ohio", "Pennsylvania", "American Samoa", "Northern Mariana Islands",
+            "Puerto Rico", "Idaho", "Oklahoma", "Louisiana", "Guam", "Colorado", "Alaska", "Maryland", "Kansas",
+            "Virginia", "Minnesota", "Texas", "Nevada", "Iowa", "Florida", "Vermont"};
+    private static final String[] TOWNS = {"Springville", "Sutton", "Hartsville/Hartley", "Diaperville", "Fulton",
+            "West", "Rodriguez", "Farley", "Cherokee", "Kenwood", "Wescosville", "Collins"};
+    private static final String[] NAMES = {"Francisca", "Cross", "Ingrid", "Rose", "Watkins", "Josefa", "Pitts",
+            "Elma", "Lee", "Barlow", "Rasmussen", "Wagner", "Newton", "Castaneda", "Mcintosh", "Hayes"};
+    private static final String[] LOCALES = {"en-AU", "zh-CN", "de-CH"};
+    private static final String[] TIMEZONES = {"Sri Lanka", "Armenia", "Tokelau", "Lithuania", "Ukraine",
+            "Cayman Islands", "Egypt", "Switzerland", "Monaco", "Kuwait"};
+    private static final String[] ROLES = {"admin", "agent", "end-user"};
+    private static final String[] TYPES = {"incident", "problem", "question", "task"};
+    private static final String[] PRIORITIES = {"urgent", "high", "normal", "low"};
+    private static final String[] STATUSES = {"pending", "hold", "open", "solved", "closed"};
+    private static final String[] VIAS = {"web", "chat", "voice"};
+    private static final String[] DETAILS = {"MegaCorp", "Non profit", "Artisan"};
+
+    private final Random random;
+
+    public DatasetGenerator(long seed) {
+        random = new Random(seed);
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage : DatasetGenerator <output directory> <number of records> [seed]");
+            System.exit(1);
+        }
+        long seed = args.length > 2 ? Long.parseLong(args[2]) : 42L;
+        new DatasetGenerator(seed).generate(Path.of(args[0]), Integer.parseInt(args[1]));
+    }
+
+    public static Path generateIfAbsent(Path baseDir, int records) throws IOException {
+        // Data sets are kept between runs, one directory per size
+        Path dir = baseDir.resolve(String.valueOf(records));
+        if (!Files.exists(dir.resolve(TICKET_FILE))) {
+            new DatasetGenerator(42L).generate(dir, records);
+        }
+        return dir;
+    }
+
+    public void generate(Path dir, int records) throws IOException {
+        // Keep roughly the same proportions as the bundled data, 1 organisation : 3 users : 8 tickets
+        int orgs = Math.max(1, records / 12);
+        int users = Math.max(1, records / 4);
+        int tickets = Math.max(1, records - orgs - users);
+        Files.createDirectories(dir);
+        writeOrgs(dir.resolve(ORG_FILE), orgs);
+        writeUsers(dir.resolve(USER_FILE), users, orgs);
+        writeTickets(dir.resolve(TICKET_FILE), tickets, users, orgs);
+    }
+
+    private void writeOrgs(Path file, int count) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+            out.write("[\n");
+            for (int i = 0; i < count; i++) {
+                int id = FIRST_ORG_ID + i;
+                out.write(i == 0 ? "  {\n" : ",\n  {\n");
+                field(out, "_id", id);
+                field(out, "url", quote("http://initech.zendesk.com/api/v2/organizations/" + id + ".json"));
+                field(out, "external_id", quote(uuid()));
+                field(out, "name", quote(pick(NAMES) + pick(WORDS).toLowerCase()));
+                field(out, "domain_names", array(4, () -> pick(WORDS).toLowerCase() + ".com"));
+                field(out, "created_at", quote(timestamp()));
+                field(out, "details", quote(pick(DETAILS)));
+                field(out, "shared_tickets", random.nextBoolean());
+                lastField(out, "tags", array(4, () -> pick(TOWNS)));
+                out.write("  }");
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    private void writeUsers(Path file, int count, int orgs) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+            out.write("[\n");
+            for (int i = 0; i < count; i++) {
+                int id = i + 1;
+                String first = pick(NAMES);
+                String last = pick(NAMES);
+                out.write(i == 0 ? "  {\n" : ",\n  {\n");
+                field(out, "_id", id);
+                field(out, "url", quote("http://initech.zendesk.com/api/v2/users/" + id + ".json"));
+                field(out, "external_id", quote(uuid()));
+                field(out, "name", quote(first + " " + last));
+                field(out, "alias", quote("Miss " + pick(NAMES)));
+                field(out, "created_at", quote(timestamp()));
+                field(out, "active", random.nextBoolean());
+                field(out, "verified", random.nextBoolean());
+                field(out, "shared", random.nextBoolean());
+                field(out, "locale", quote(pick(LOCALES)));
+                field(out, "timezone", quote(pick(TIMEZONES)));
+                field(out, "last_login_at", quote(timestamp()));
+                field(out, "email", quote(first.toLowerCase() + last.toLowerCase() + id + "@flotonic.com"));
+                field(out, "phone", quote(String.format("%04d-%03d-%03d",
+                        random.nextInt(10000), random.nextInt(1000), random.nextInt(1000))));
+                field(out, "signature", quote("Don't Worry Be Happy!"));
+                field(out, "organization_id", FIRST_ORG_ID + random.nextInt(orgs));
+                field(out, "tags", array(4, () -> pick(TOWNS)));
+                field(out, "suspended", random.nextBoolean());
+                lastField(out, "role", quote(pick(ROLES)));
+                out.write("  }");
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    private void writeTickets(Path file, int count, int users, int orgs) throws IOException {
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.ISO_8859_1)) {
+            out.write("[\n");
+            for (int i = 0; i < count; i++) {
+                String id = uuid();
+                out.write(i == 0 ? "  {\n" : ",\n  {\n");
+                field(out, "_id", quote(id));
+                field(out, "url", quote("http://initech.zendesk.com/api/v2/tickets/" + id + ".json"));
+                field(out, "external_id", quote(uuid()));
+                field(out, "created_at", quote(timestamp()));
+                field(out, "type", quote(pick(TYPES)));
+                field(out, "subject", quote("A " + pick(new String[]{"Catastrophe", "Drama", "Problem",
+                        "Nuisance"}) + " in " + pick(PLACES)));
+                field(out, "description", quote(sentence(12 + random.nextInt(20))));
+                field(out, "priority", quote(pick(PRIORITIES)));
+                field(out, "status", quote(pick(STATUSES)));
+                field(out, "submitter_id", 1 + random.nextInt(users));
+                field(out, "assignee_id", 1 + random.nextInt(users));
+                field(out, "organization_id", FIRST_ORG_ID + random.nextInt(orgs));
+                field(out, "tags", array(4, () -> pick(PLACES)));
+                field(out, "has_incidents", random.nextBoolean());
+                field(out, "due_at", quote(timestamp()));
+                lastField(out, "via", quote(pick(VIAS)));
+                out.write("  }");
+            }
+            out.write("\n]\n");
+        }
+    }
+
+    private static void field(BufferedWriter out, String key, Object value) throws IOException {
+        out.write("    \"" + key + "\": " + value + ",\n");
+    }
+
+    private static void lastField(BufferedWriter out, String key, Object value) throws IOException {
+        out.write("    \"" + key + "\": " + value + "\n");
+    }
+
+    private static String quote(String value) {
+        return '"' + value + '"';
+    }
+
+    private String array(int size, Supplier<String> element) {
+        StringBuilder json = new StringBuilder("[");
+        for (int i = 0; i < size; i++) {
+            json.append(i == 0 ? "" : ", ").append(quote(element.get()));
+        }
+        return json.append(']').toString();
+    }
+
+    private String sentence(int words) {
+        StringBuilder text = new StringBuilder(pick(WORDS));
+        for (int i = 1; i < words; i++) {
+            text.append(' ').append(pick(WORDS).toLowerCase());
+        }
+        return text.append('.').toString();
+    }
+
+    private String pick(String[] values) {
+        return values[random.nextInt(values.length)];
+    }
+
+    private String uuid() {
+        return new UUID(random.nextLong(), random.nextLong()).toString();
+    }
+
+    private String timestamp() {
+        return EPOCH.plusSeconds(random.nextInt(4 * 365 * 24 * 3600)).format(TIMESTAMP);
+    }
+}
@@ -0,0 +1,55 @@
+package com.dts.discover.jsearch.bench;
+
+import com.dts.discover.jsearch.config.AppConfig;
+import com.dts.discover.jsearch.display.DisplayFormatter;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.parser.GenericParser;
+import com.dts.discover.jsearch.parser.RelationIndex;
+import org.json.simple.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Rendering cost of an organisation page with all its users and tickets, the biggest page the application prints.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class DisplayBenchmark {
+
+    private final List<String> displayOrder = List.of("Organisation", "User", "Ticket");
+    private JSONObject page;
+
+    @Setup
+    @SuppressWarnings("unchecked")
+    public void load(BenchmarkData data) throws DataLoadException {
+        GenericParser orgs = new GenericParser(data.file(DatasetGenerator.ORG_FILE));
+        GenericParser users = new GenericParser(data.file(DatasetGenerator.USER_FILE));
+        GenericParser tickets = new GenericParser(data.file(DatasetGenerator.TICKET_FILE));
+        RelationIndex userOrgs = new RelationIndex(users, AppConfig.ORG_ID_KEY, orgs, AppConfig.ID_KEY);
+        RelationIndex ticketOrgs = new RelationIndex(tickets, AppConfig.ORG_ID_KEY, orgs, AppConfig.ID_KEY);
+        page = new JSONObject();
+        page.put("Organisation", orgs.getObj(0));
+        page.put("User", users.getObjs(userOrgs.childrenOf(0)));
+        page.put("Ticket", tickets.getObjs(ticketOrgs.childrenOf(0)));
+    }
+
+    @Benchmark
+    public String formatPage() throws DataLoadException {
+        return new DisplayFormatter(page, displayOrder).formatPage();
+    }
+}
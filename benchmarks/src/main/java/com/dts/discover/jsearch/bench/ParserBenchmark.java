@@ -0,0 +1,34 @@
+package com.dts.discover.jsearch.bench;
+
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.parser.GenericParser;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Cost of loading a data set in to a GenericParser, parsing plus building the store and the indexes.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ParserBenchmark {
+
+    @Benchmark
+    public GenericParser loadTickets(BenchmarkData data) throws DataLoadException {
+        return new GenericParser(data.file(DatasetGenerator.TICKET_FILE));
+    }
+
+    @Benchmark
+    public GenericParser loadUsers(BenchmarkData data) throws DataLoadException {
+        return new GenericParser(data.file(DatasetGenerator.USER_FILE));
+    }
+}
@@ -0,0 +1,95 @@
+package com.dts.discover.jsearch.bench;
+
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.exception.InvalidQueryException;
+import com.dts.discover.jsearch.parser.GenericParser;
+import com.dts.discover.jsearch.parser.MatchMode;
+import com.dts.discover.jsearch.parser.Query;
+import org.json.simple.JSONArray;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Search latency of GenericParser.getMatchingObj over the generated tickets for each kind of search. The result
+ * cache is turned off so every iteration runs the search itself.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Djsearch.cache.entries=0")
+@State(Scope.Benchmark)
+public class SearchBenchmark {
+
+    private GenericParser tickets;
+
+    @Setup
+    public void load(BenchmarkData data) throws DataLoadException {
+        tickets = new GenericParser(data.file(DatasetGenerator.TICKET_FILE));
+    }
+
+    @Benchmark
+    public JSONArray emptyValue() {
+        // None of the generated tickets has an empty description so this always scans everything
+        return search("description", "", MatchMode.CONTAINS);
+    }
+
+    @Benchmark
+    public JSONArray exactForeignKey() {
+        return search("organization_id", "150", MatchMode.EXACT);
+    }
+
+    @Benchmark
+    public JSONArray exactIdentifier() {
+        return search("assignee_id", "42", MatchMode.EXACT);
+    }
+
+    @Benchmark
+    public JSONArray substringShort() {
+        // Too short for the trigram index
+        return search("status", "ol", MatchMode.CONTAINS);
+    }
+
+    @Benchmark
+    public JSONArray substringSelective() {
+        return search("subject", "mariana", MatchMode.CONTAINS);
+    }
+
+    @Benchmark
+    public JSONArray substringBroad() {
+        return search("description", "dolor", MatchMode.CONTAINS);
+    }
+
+    @Benchmark
+    public int[] compoundQuery() throws InvalidQueryException {
+        // Planned from the most selective condition, the organisation, down to the broad status and priority
+        return query(Query.parse("status=open and priority=high and organization_id=150"));
+    }
+
+    private int[] query(Query query) {
+        try {
+            return tickets.search(query, 0, GenericParser.UNLIMITED).getOrdinals();
+        } catch (Exception e) {
+            return null;
+        }
+    }
+
+    private JSONArray search(String key, String value, MatchMode mode) {
+        try {
+            return tickets.getMatchingObj(key, value, mode);
+        } catch (Exception e) {
+            // Nothing found is a valid outcome of a search
+            return null;
+        }
+    }
+}
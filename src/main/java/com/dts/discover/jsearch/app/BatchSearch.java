@@ -0,0 +1,167 @@
+package com.dts.discover.jsearch.app;
+
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.exception.DataNotFoundException;
+import com.dts.discover.jsearch.exception.InvalidQueryException;
+import com.dts.discover.jsearch.exception.KeyNotFoundException;
+import com.dts.discover.jsearch.parser.DatasetLoader;
+import com.dts.discover.jsearch.parser.GenericParser;
+import com.dts.discover.jsearch.parser.MatchMode;
+import com.dts.discover.jsearch.parser.Query;
+import com.dts.discover.jsearch.parser.SearchPage;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/*
+ * Runs searches read from a file or the standard input without going through the menu. Each line holds the data set
+ * name, the key and the value separated by tabs, the value follows the same rules as in the menu so a leading = asks
+ * for an exact match and [] searches for empty values. A line with only the data set name and a query, such as
+ * status=open and priority=high, runs the query (see Query). Empty lines and lines starting with # are skipped.
+ *
+ * Searches run concurrently and the results are written as one Json object per line (NDJSON) in the same order as
+ * the searches were read, each one carrying the line number of its search. The searches are read and the results
+ * written one char per byte, the same way as the data files are loaded, so values of UTF-8 data and searches for them
+ * go out as the same UTF-8 bytes they came in as whatever the platform charset.
+ */
+public class BatchSearch {
+
+    // Searches started ahead of the one being written, bounds the results held while waiting for a slow search
+    private static final int WINDOW = 1024;
+
+    private final Map<String, DatasetLoader> datasets = new HashMap<>();
+    private final ExecutorService executor;
+
+    public BatchSearch(List<DatasetLoader> loaders, ExecutorService executor) {
+        loaders.forEach(loader -> datasets.put(loader.getName(), loader));
+        this.executor = executor;
+    }
+
+    public static ExecutorService newExecutor(int threads) {
+        // Virtual threads make a thread per search cheap but only exist from Java 21, so they are looked up at run
+        // time and a pool of one thread per processor is used on older versions
+        if (threads <= 0) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                threads = Runtime.getRuntime().availableProcessors();
+            }
+        }
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "batch-search");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public int run(InputStream searches, OutputStream output) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(searches, StandardCharsets.ISO_8859_1));
+        return run(reader, new BufferedWriter(new OutputStreamWriter(output, StandardCharsets.ISO_8859_1), 64 * 1024));
+    }
+
+    public int run(BufferedReader searches, Writer output) throws IOException {
+        // Returns the number of searches which failed, results are turned in to Json by the searching threads so
+        // writing them out in order is the only work left to this thread
+        Deque<CompletableFuture<String>> pending = new ArrayDeque<>();
+        AtomicInteger failed = new AtomicInteger();
+        int lineNumber = 0;
+        String line;
+        while ((line = searches.readLine()) != null) {
+            lineNumber++;
+            if (line.isBlank() || line.startsWith("#")) {
+                continue;
+            }
+            String search = line;
+            int searchLine = lineNumber;
+            pending.add(CompletableFuture.supplyAsync(() -> {
+                JSONObject result = search(searchLine, search);
+                if (result.containsKey("error")) {
+                    failed.incrementAndGet();
+                }
+                return result.toJSONString();
+            }, executor).exceptionally(e -> {
+                // Anything else going wrong fails this search only, the rest of the batch carries on
+                failed.incrementAndGet();
+                return error(searchLine, e instanceof CompletionException ? e.getCause() : e).toJSONString();
+            }));
+            if (pending.size() >= WINDOW) {
+                write(pending.poll().join(), output);
+            }
+        }
+        while (!pending.isEmpty()) {
+            write(pending.poll().join(), output);
+        }
+        output.flush();
+        return failed.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private JSONObject search(int lineNumber, String search) {
+        JSONObject result = new JSONObject();
+        result.put("line", lineNumber);
+        String[] fields = search.split("\t", 3);
+        if (fields.length < 2) {
+            result.put("error", "Expected a data set and either a key and a value or a query separated by tabs");
+            return result;
+        }
+        result.put("dataset", fields[0]);
+        DatasetLoader loader = datasets.get(fields[0]);
+        if (loader == null) {
+            result.put("error", "Unknown data set " + fields[0] + ", expected one of " + datasets.keySet());
+            return result;
+        }
+        try {
+            SearchPage page;
+            if (fields.length == 2) {
+                result.put("query", fields[1]);
+                page = loader.get().search(Query.parse(fields[1]), 0, GenericParser.UNLIMITED);
+            } else {
+                result.put("key", fields[1]);
+                result.put("value", fields[2]);
+                String value = fields[2].equals("[]") ? "" : fields[2];
+                MatchMode mode = value.startsWith("=") ? MatchMode.EXACT : MatchMode.CONTAINS;
+                value = (mode == MatchMode.EXACT) ? value.substring(1) : value;
+                page = loader.get().search(fields[1], value, mode, 0, GenericParser.UNLIMITED);
+            }
+            result.put("results", page.getDataset().getObjs(page.getOrdinals()));
+        } catch (DataNotFoundException e) {
+            // Nothing matching is a valid answer rather than a failure
+            result.put("results", new JSONArray());
+        } catch (KeyNotFoundException | InvalidQueryException | DataLoadException e) {
+            result.put("error", e.getMessage());
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject error(int lineNumber, Throwable cause) {
+        JSONObject result = new JSONObject();
+        result.put("line", lineNumber);
+        result.put("error", "Unable to run the search : " + cause);
+        return result;
+    }
+
+    private static void write(String result, Writer output) throws IOException {
+        output.write(result);
+        output.write('\n');
+    }
+}
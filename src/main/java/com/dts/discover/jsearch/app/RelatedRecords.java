@@ -0,0 +1,134 @@
+package com.dts.discover.jsearch.app;
+
+import com.dts.discover.jsearch.config.AppConfig;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.exception.DataNotFoundException;
+import com.dts.discover.jsearch.exception.KeyNotFoundException;
+import com.dts.discover.jsearch.index.PostingList;
+import com.dts.discover.jsearch.parser.Dataset;
+import com.dts.discover.jsearch.parser.DatasetLoader;
+import com.dts.discover.jsearch.parser.GenericParser;
+import com.dts.discover.jsearch.parser.MatchMode;
+import com.dts.discover.jsearch.parser.RelationIndex;
+import org.json.simple.JSONObject;
+
+import java.util.List;
+
+/*
+ * Puts a record together with the records related to it through the organisation, a user or a ticket with its
+ * organisation and an organisation with its users and tickets. The joins are built once per version of the data
+ * sets and shared by every caller, so pages can be put together from several threads at the same time.
+ *
+ * Related users and tickets are given as a lazy Iterable, so they are only turned in to Json objects as the page
+ * is being written out. The keys of a page are added to the display order in the order they should be shown.
+ */
+public class RelatedRecords {
+
+    private final DatasetLoader userLoader;
+    private final DatasetLoader orgLoader;
+    private final DatasetLoader ticketLoader;
+    private RelationIndex userOrgs;
+    private RelationIndex ticketOrgs;
+
+    public RelatedRecords(DatasetLoader userLoader, DatasetLoader orgLoader, DatasetLoader ticketLoader) {
+        this.userLoader = userLoader;
+        this.orgLoader = orgLoader;
+        this.ticketLoader = ticketLoader;
+    }
+
+    private synchronized RelationIndex userOrgs(Dataset users, Dataset orgs) {
+        // Join the users to their organisation once per version of the data sets so the related data is a lookup
+        if (userOrgs == null || !userOrgs.joins(users, orgs)) {
+            userOrgs = new RelationIndex(users, AppConfig.ORG_ID_KEY, orgs, AppConfig.ID_KEY);
+        }
+        return userOrgs;
+    }
+
+    private synchronized RelationIndex ticketOrgs(Dataset tickets, Dataset orgs) {
+        // Join the tickets to their organisation once per version of the data sets so the related data is a lookup
+        if (ticketOrgs == null || !ticketOrgs.joins(tickets, orgs)) {
+            ticketOrgs = new RelationIndex(tickets, AppConfig.ORG_ID_KEY, orgs, AppConfig.ID_KEY);
+        }
+        return ticketOrgs;
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject userPage(Dataset users, int user, List<String> displayOrder) throws DataLoadException {
+        Dataset orgs = orgLoader.get().getDataset();
+        Dataset tickets = ticketLoader.get().getDataset();
+        JSONObject page = new JSONObject();
+        page.put("User", users.getObj(user));
+        displayOrder.add("User");
+        int org = userOrgs(users, orgs).parentOf(user);
+        if (org != RelationIndex.NONE) {
+            page.put("Organisation", orgs.getObj(org));
+            displayOrder.add("Organisation");
+        }
+        // Tickets are related to the user by the organisation id itself, whether or not the organisation exists
+        int[] childTickets = org != RelationIndex.NONE ? ticketOrgs(tickets, orgs).childrenOf(org) :
+                ticketsOf(tickets, users.getValue(user, AppConfig.ORG_ID_KEY));
+        if (childTickets.length > 0) {
+            page.put("Ticket", tickets.iterateObjs(childTickets));
+            displayOrder.add("Ticket");
+        }
+        return page;
+    }
+
+    private int[] ticketsOf(Dataset tickets, Object orgId) throws DataLoadException {
+        // Tickets of an organisation missing from the organisations, found by searching for its id
+        if (orgId == null) {
+            return PostingList.EMPTY;
+        }
+        try {
+            return ticketLoader.get().search(tickets, AppConfig.ORG_ID_KEY, orgId.toString(), MatchMode.EXACT, 0,
+                    GenericParser.UNLIMITED).getOrdinals();
+        } catch (KeyNotFoundException | DataNotFoundException e) {
+            return PostingList.EMPTY;
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject orgPage(Dataset orgs, int org, List<String> displayOrder) throws DataLoadException {
+        Dataset users = userLoader.get().getDataset();
+        Dataset tickets = ticketLoader.get().getDataset();
+        JSONObject page = new JSONObject();
+        page.put("Organisation", orgs.getObj(org));
+        displayOrder.add("Organisation");
+        int[] childUsers = userOrgs(users, orgs).childrenOf(org);
+        if (childUsers.length > 0) {
+            page.put("User", users.iterateObjs(childUsers));
+            displayOrder.add("User");
+        }
+        int[] childTickets = ticketOrgs(tickets, orgs).childrenOf(org);
+        if (childTickets.length > 0) {
+            page.put("Ticket", tickets.iterateObjs(childTickets));
+            displayOrder.add("Ticket");
+        }
+        return page;
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject ticketPage(Dataset tickets, int ticket, List<String> displayOrder) throws DataLoadException {
+        Dataset orgs = orgLoader.get().getDataset();
+        JSONObject page = new JSONObject();
+        page.put("Ticket", tickets.getObj(ticket));
+        displayOrder.add("Ticket");
+        int org = ticketOrgs(tickets, orgs).parentOf(ticket);
+        if (org != RelationIndex.NONE) {
+            page.put("Organisation", orgs.getObj(org));
+            displayOrder.add("Organisation");
+        }
+        return page;
+    }
+
+    public JSONObject page(DatasetLoader loader, Dataset dataset, int ordinal, List<String> displayOrder)
+            throws DataLoadException {
+        // Page of a record of any of the data sets
+        if (loader == userLoader) {
+            return userPage(dataset, ordinal, displayOrder);
+        } else if (loader == orgLoader) {
+            return orgPage(dataset, ordinal, displayOrder);
+        }
+        return ticketPage(dataset, ordinal, displayOrder);
+    }
+}
@@ -0,0 +1,141 @@
+package com.dts.discover.jsearch.app;
+
+import com.dts.discover.jsearch.display.DisplayFormatter;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.parser.Dataset;
+import com.dts.discover.jsearch.stats.Metrics;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/*
+ * Renders the pages of a set of results on a pool of threads and writes them out in the order of the results. A worker
+ * puts a page together with its related records and formats it in memory, and the writing thread takes the pages in
+ * the order they were handed out, waiting for the next one when it isn't ready yet. Only a window of pages ahead of
+ * the one being written is handed out at a time, so a slow terminal holds back the workers rather than filling the
+ * memory with formatted pages. The window is sized in bytes from the pages written so far, up to two pages per
+ * thread, so pages with many related records are handed out a few at a time and pages bigger than the buffer one at
+ * a time.
+ *
+ * With a single thread there is nothing to overlap, the pages are written straight to the writer row by row, so the
+ * memory stays flat however many related records a page has.
+ */
+class RenderPipeline {
+
+    private final ExecutorService pool;
+    private final int threads;
+    // Formatted pages held ahead of the one being written, in chars which take about a byte each
+    private final long bufferBytes;
+    private final boolean colour;
+    private final Metrics metrics;
+
+    RenderPipeline(int threads, long bufferBytes, boolean colour, Metrics metrics) {
+        pool = threads <= 1 ? null : Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "page-renderer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.threads = threads;
+        this.bufferBytes = bufferBytes;
+        this.colour = colour;
+        this.metrics = metrics;
+    }
+
+    void render(Dataset dataset, int[] ordinals, PageBuilder builder, Writer writer)
+            throws DataLoadException, IOException {
+        if (pool == null) {
+            for (int ordinal : ordinals) {
+                long start = System.nanoTime();
+                List<String> displayOrder = new ArrayList<>();
+                JSONObject page;
+                try {
+                    page = builder.build(dataset, ordinal, displayOrder);
+                } catch (RuntimeException e) {
+                    throw new DataLoadException("Unable to render the page : " + e);
+                }
+                new DisplayFormatter(page, displayOrder, colour).writePage(writer);
+                writer.write(System.lineSeparator());
+                // Flush every page so the first result shows up without waiting for the rest
+                writer.flush();
+                metrics.record("render page", start);
+            }
+            return;
+        }
+        Deque<CompletableFuture<String>> pending = new ArrayDeque<>();
+        long writtenBytes = 0;
+        int writtenPages = 0;
+        try {
+            for (int ordinal : ordinals) {
+                pending.add(CompletableFuture.supplyAsync(() -> format(dataset, ordinal, builder), pool));
+                while (pending.size() >= window(writtenBytes, writtenPages)) {
+                    writtenBytes += write(pending.poll(), writer);
+                    writtenPages++;
+                }
+            }
+            while (!pending.isEmpty()) {
+                write(pending.poll(), writer);
+            }
+            writer.flush();
+        } finally {
+            // Left over when a page failed or the output went away, their pages aren't needed any more
+            pending.forEach(page -> page.cancel(false));
+        }
+    }
+
+    private int window(long writtenBytes, int writtenPages) {
+        // Pages handed out ahead of the one being written, one per thread until the size of a page is known
+        if (writtenPages == 0) {
+            return threads;
+        }
+        long pageBytes = Math.max(1, writtenBytes / writtenPages);
+        return (int) Math.max(1, Math.min(2L * threads, bufferBytes / pageBytes));
+    }
+
+    private String format(Dataset dataset, int ordinal, PageBuilder builder) {
+        long start = System.nanoTime();
+        try {
+            List<String> displayOrder = new ArrayList<>();
+            JSONObject page = builder.build(dataset, ordinal, displayOrder);
+            return new DisplayFormatter(page, displayOrder, colour).formatPage();
+        } catch (DataLoadException e) {
+            throw new CompletionException(e);
+        } finally {
+            metrics.record("render page", start);
+        }
+    }
+
+    private static int write(CompletableFuture<String> page, Writer writer) throws DataLoadException, IOException {
+        // Returns the length of the page. Pages written so far are shown before waiting on the next one, no need to
+        // flush while they keep coming
+        if (!page.isDone()) {
+            writer.flush();
+        }
+        String formatted;
+        try {
+            formatted = page.join();
+        } catch (CompletionException e) {
+            // Any failure of a worker is handed to the caller as a DataLoadException, which the menu reports before
+            // going back to the choice of data set
+            if (e.getCause() instanceof DataLoadException) {
+                throw (DataLoadException) e.getCause();
+            }
+            throw new DataLoadException("Unable to render the page : " + e.getCause());
+        }
+        writer.write(formatted);
+        writer.write(System.lineSeparator());
+        return formatted.length();
+    }
+
+    interface PageBuilder {
+        JSONObject build(Dataset dataset, int ordinal, List<String> displayOrder) throws DataLoadException;
+    }
+}
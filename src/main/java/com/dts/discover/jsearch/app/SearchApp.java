@@ -2,37 +2,87 @@ package com.dts.discover.jsearch.app;
 
 import com.dts.discover.jsearch.config.AppConfig;
 import com.dts.discover.jsearch.config.Colour;
-import com.dts.discover.jsearch.display.DisplayFormatter;
 import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.exception.InvalidQueryException;
+import com.dts.discover.jsearch.parser.Dataset;
+import com.dts.discover.jsearch.parser.DatasetLoader;
+import com.dts.discover.jsearch.parser.DatasetWatcher;
 import com.dts.discover.jsearch.parser.GenericParser;
+import com.dts.discover.jsearch.parser.KeyStats;
+import com.dts.discover.jsearch.parser.MatchMode;
+import com.dts.discover.jsearch.parser.Query;
+import com.dts.discover.jsearch.parser.SearchPage;
+import com.dts.discover.jsearch.stats.Metrics;
 import org.json.simple.JSONArray;
-import org.json.simple.JSONObject;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStreamWriter;
 import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Optional;
 import java.util.Scanner;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /*
  * This class is written as a supporter and a runner to assemble the core parts of this app, For the sake of time
- * this is not unit test covered and excluded form the coverage reports.
+ * only the menu loop is unit test covered, through data sets handed to it in place of the configured ones.
  * Actual concepts of unit testing, code extensibility, test execution automation and test coverage reports
  * are displayed in the core parts of this project.
  */
 public class SearchApp {
 
+    // Keys or values suggested when completing what has been typed so far
+    private static final int COMPLETIONS = 10;
+
     //declare a scanner object to read the command line input by user
     private Scanner scanner;
 
     private PrintStream printStream;
+    // Pages are written through a buffer straight in to the print stream as they are rendered
+    private Writer pageWriter;
 
     private String key;
     private String value;
+    private MatchMode mode;
+    // Query entered in place of a key, null for a single key search
+    private Query query;
+
+    private final Metrics metrics = new Metrics("application");
+    // Result pages are rendered in parallel and written in order
+    private final RenderPipeline renderer =
+            new RenderPipeline(AppConfig.RENDER_THREADS, AppConfig.RENDER_MEGABYTES * 1024L * 1024L,
+                    AppConfig.COLOUR_OUTPUT, metrics);
+
+    // Data sets searched from the menu, the ones from the configuration unless given to the constructor
+    private final List<DatasetLoader> loaders;
+    private DatasetLoader userLoader;
+    private DatasetLoader orgLoader;
+    private DatasetLoader ticketLoader;
+    private RelatedRecords related;
 
     public static void main(String[] args) {
+        // Searches are read from a file, or the standard input when no file is given, instead of the menu
+        if (args.length > 0 && args[0].equals("--batch")) {
+            System.exit(runBatch(args.length > 1 ? args[1] : "-"));
+        }
+        // Data sets are served over HTTP until the process is stopped
+        if (args.length > 0 && args[0].equals("--server")) {
+            int port = args.length > 1 ? port(args[1]) : AppConfig.SERVER_PORT;
+            if (port < 0) {
+                System.err.println("Usage: --server [port], where the port is a number from 0 to 65535");
+                System.exit(1);
+            }
+            runServer(port);
+            return;
+        }
         SearchApp app = null;
         try {
             app = new SearchApp(System.in, System.out);
@@ -43,33 +93,99 @@ public class SearchApp {
     }
 
     public SearchApp(InputStream inputStream, PrintStream printStream) throws DataLoadException {
+        this(inputStream, printStream, null);
+    }
+
+    SearchApp(InputStream inputStream, PrintStream printStream, List<DatasetLoader> loaders) {
+        this.loaders = loaders;
         scanner = new Scanner(inputStream, StandardCharsets.ISO_8859_1).useDelimiter("\n");
         this.printStream = printStream;
+        pageWriter = new BufferedWriter(new OutputStreamWriter(printStream, Charset.defaultCharset()), 64 * 1024);
+    }
+
+    private static List<DatasetLoader> createLoaders(DatasetWatcher watcher) {
+        // Data sets are loaded in the background on daemon threads so the menu is available straight away
+        ExecutorService loaderPool = Executors.newFixedThreadPool(3, runnable -> {
+            Thread thread = new Thread(runnable, "dataset-loader");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Path snapshotDir = AppConfig.SNAPSHOT_DIR.isEmpty() ? null : Path.of(AppConfig.SNAPSHOT_DIR);
+        List<DatasetLoader> loaders = List.of(
+                new DatasetLoader("users", AppConfig.USER_FILE_URL, snapshotDir, loaderPool, watcher),
+                new DatasetLoader("organisations", AppConfig.ORG_FILE_URL, snapshotDir, loaderPool, watcher),
+                new DatasetLoader("tickets", AppConfig.TICKET_FILE_URL, snapshotDir, loaderPool, watcher));
+        if (!AppConfig.LAZY_LOADING) {
+            loaders.forEach(DatasetLoader::start);
+        }
+        return loaders;
+    }
+
+    private static int runBatch(String searchFile) {
+        ExecutorService executor = BatchSearch.newExecutor(AppConfig.BATCH_THREADS);
+        try (InputStream searches = searchFile.equals("-") ? System.in : Files.newInputStream(Path.of(searchFile))) {
+            int failed = new BatchSearch(createLoaders(null), executor).run(searches, System.out);
+            if (failed > 0) {
+                System.err.println(failed + " searches failed, see the error of each in the results");
+            }
+            return failed > 0 ? 1 : 0;
+        } catch (IOException e) {
+            System.err.println("Unable to run the batch of searches : " + e.getMessage());
+            return 1;
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+    private static int port(String port) {
+        // -1 when the argument isn't a port, 0 lets the system pick a free one
+        try {
+            int number = Integer.parseInt(port);
+            return number <= 65535 ? number : -1;
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static void runServer(int port) {
+        try {
+            SearchServer server = new SearchServer(createLoaders(AppConfig.WATCH_FILES ? startWatcher() : null),
+                    port, AppConfig.SERVER_THREADS);
+            server.start();
+            System.out.println("Serving the data sets on http://localhost:" + server.getPort() + "/");
+        } catch (IOException e) {
+            System.err.println("Unable to start the server : " + e.getMessage());
+            System.exit(1);
+        }
     }
 
-    @SuppressWarnings("unchecked")
     public void run() {
 
         String userInput;
-        String orgIdKey = "organization_id";
-        List<String> displayOrder;
 
-        try {
-            GenericParser userParser = new GenericParser(AppConfig.USER_FILE_URL);
-            GenericParser orgParser = new GenericParser(AppConfig.ORG_FILE_URL);
-            GenericParser ticketParser = new GenericParser(AppConfig.TICKET_FILE_URL);
+        List<DatasetLoader> loaders =
+                this.loaders != null ? this.loaders : createLoaders(AppConfig.WATCH_FILES ? startWatcher() : null);
+        userLoader = loaders.get(0);
+        orgLoader = loaders.get(1);
+        ticketLoader = loaders.get(2);
+        related = new RelatedRecords(userLoader, orgLoader, ticketLoader);
 
+        try {
             printStream.println("Welcome to the data search application");
             printStream.println("======================================");
             printStream.println();
 
             //loop the utility in loop until the user makes the choice to exit
             while (true) {
-                //Print the options for the user to choose from
+                //Print the readiness of the data sets and the options for the user to choose from
+                printStream.println("Data sets : " + userLoader.getName() + " [" + userLoader.getStatus() + "] " +
+                        orgLoader.getName() + " [" + orgLoader.getStatus() + "] " +
+                        ticketLoader.getName() + " [" + ticketLoader.getStatus() + "]");
                 printStream.println("to start searching please enter ");
                 printStream.println("1 for User search");
                 printStream.println("2 for Organisation search");
                 printStream.println("3 for Ticket search");
+                printStream.println("':stats' to see the search statistics or ':stats <file>' to save them as Json");
                 printStream.println("or 'quit' anytime to exit the program");
                 // Prompt the use to make a choice
                 printStream.println("Enter your choice : ");
@@ -77,90 +193,47 @@ public class SearchApp {
                 //Capture the user input in scanner object and store it in a pre declared variable
                 userInput = scanner.next();
 
+                //Statistics can be asked for at any time and don't need a data set
+                if (userInput.startsWith(":stats")) {
+                    printStats(userInput.substring(":stats".length()).trim());
+                    continue;
+                }
+
                 //Check the user input
                 switch (userInput) {
                     case "1":
                         //do the job number 1
+                        GenericParser userParser = dataset(userLoader);
                         captureInput(userParser);
-                        var users = Optional.ofNullable(findItemsByKV(userParser, key, value));
-                        if (users.isPresent()) {
-                            for (JSONObject JSONObject : (Iterable<JSONObject>) users.get()) {
-                                displayOrder = new ArrayList<String>();
-                                JSONObject page = new JSONObject();
-                                page.put("User", JSONObject);
-                                displayOrder.add("User");
-                                var orgId = Optional.ofNullable(JSONObject.get(orgIdKey));
-                                if (orgId.isPresent()) {
-                                    var childOrgs =
-                                            Optional.ofNullable(findItemsByKV(orgParser, "_id", orgId.get().toString()));
-                                    if (childOrgs.isPresent()) {
-                                        page.put("Organisation", childOrgs.get().get(0));
-                                        displayOrder.add("Organisation");
-                                    }
-                                    var childTickets =
-                                            Optional.ofNullable(findItemsByKV(ticketParser, orgIdKey, orgId.get().toString()));
-                                    if (childTickets.isPresent()) {
-                                        page.put("Ticket", childTickets.get());
-                                        displayOrder.add("Ticket");
-                                    }
-                                }
-                                DisplayFormatter formatter = new DisplayFormatter(page, displayOrder);
-                                printStream.println(formatter.formatPage());
-                            }
+                        dataset(orgLoader);
+                        dataset(ticketLoader);
+                        try {
+                            showResults(userParser, related::userPage);
+                        } catch (DataLoadException e) {
+                            printError(e);
                         }
                         break;
                     case "2":
                         //do the job number 2
+                        GenericParser orgParser = dataset(orgLoader);
                         captureInput(orgParser);
-                        var orgs = Optional.ofNullable(findItemsByKV(orgParser, key, value));
-                        if (orgs.isPresent()) {
-                            for (JSONObject JSONObject : (Iterable<JSONObject>) orgs.get()) {
-                                displayOrder = new ArrayList<String>();
-                                JSONObject page = new JSONObject();
-                                page.put("Organisation", JSONObject);
-                                displayOrder.add("Organisation");
-                                var orgId = Optional.ofNullable(JSONObject.get("_id"));
-                                if (orgId.isPresent()) {
-                                    var childUsers =
-                                            Optional.ofNullable(findItemsByKV(userParser, orgIdKey, orgId.get().toString()));
-                                    if (childUsers.isPresent()) {
-                                        page.put("User", childUsers.get());
-                                        displayOrder.add("User");
-                                    }
-                                    var childTickets =
-                                            Optional.ofNullable(findItemsByKV(ticketParser, orgIdKey, orgId.get().toString()));
-                                    if (childTickets.isPresent()) {
-                                        page.put("Ticket", childTickets.get());
-                                        displayOrder.add("Ticket");
-                                    }
-                                }
-                                DisplayFormatter formatter = new DisplayFormatter(page, displayOrder);
-                                printStream.println(formatter.formatPage());
-                            }
+                        dataset(userLoader);
+                        dataset(ticketLoader);
+                        try {
+                            showResults(orgParser, related::orgPage);
+                        } catch (DataLoadException e) {
+                            printError(e);
                         }
                         break;
                     case "3":
                         //do the job number 3
+                        GenericParser ticketParser = dataset(ticketLoader);
                         captureInput(ticketParser);
-                        var tickets = Optional.ofNullable(findItemsByKV(ticketParser, key, value));
-                        if (tickets.isPresent()) {
-                            for (JSONObject JSONObject : (Iterable<JSONObject>) tickets.get()) {
-                                displayOrder = new ArrayList<String>();
-                                JSONObject page = new JSONObject();
-                                page.put("Ticket", JSONObject);
-                                displayOrder.add("Ticket");
-                                var orgId = Optional.ofNullable(JSONObject.get(orgIdKey));
-                                if (orgId.isPresent()) {
-                                    var childOrgs =
-                                            Optional.ofNullable(findItemsByKV(orgParser, "_id", orgId.get().toString()));
-                                    if (childOrgs.isPresent()) {
-                                        page.put("Organisation", childOrgs.get().get(0));
-                                        displayOrder.add("Organisation");
-                                    }
-                                }
-                                DisplayFormatter formatter = new DisplayFormatter(page, displayOrder);
-                                printStream.println(formatter.formatPage());
-                            }
+                        dataset(orgLoader);
+                        try {
+                            showResults(ticketParser, related::ticketPage);
+                        } catch (DataLoadException e) {
+                            printError(e);
                         }
                         break;
                     case "quit":
@@ -169,7 +242,8 @@ public class SearchApp {
                         System.exit(1);
                     default:
                         //inform user in case of invalid choice.
-                        printStream.println(Colour.RED + "Invalid choice. Read the options carefully..." + Colour.RESET);
+                        printStream.println(colour(Colour.RED) + "Invalid choice. Read the options carefully..." +
+                                colour(Colour.RESET));
                         printStream.println();
                 }
             }
@@ -178,31 +252,190 @@ public class SearchApp {
         }
     }
 
+    private void printError(DataLoadException e) {
+        // A page which can't be put together only fails its search, the menu is shown again
+        printStream.println(colour(Colour.RED) + e.getMessage() + colour(Colour.RESET));
+        printStream.println();
+    }
+
+    private GenericParser dataset(DatasetLoader loader) throws DataLoadException {
+        // Let the user know if they have to wait for the data set to finish loading
+        if (!loader.getStatus().equals("ready")) {
+            printStream.println("Loading " + loader.getName() + " please wait...");
+        }
+        return loader.get();
+    }
+
+    private static DatasetWatcher startWatcher() {
+        try {
+            return new DatasetWatcher();
+        } catch (IOException e) {
+            System.err.println("Unable to watch the data files for changes : " + e.getMessage());
+            return null;
+        }
+    }
+
     private void captureInput(GenericParser parser) {
         printStream.println("please enter one of the field to search following list ");
-        printStream.print(Colour.GREEN + parser.getKeyString() + Colour.RESET);
+        printStream.print(colour(Colour.GREEN) + catalog(parser) + colour(Colour.RESET));
+        printStream.println("or a query such as status=open and priority~high or type=task, = for an exact match " +
+                "and ~ for a partial one, numbers and timestamps can also be compared with >, >=, < and <=");
+        printStream.println("end a field or a value with ? to list the ones starting with what you typed, " +
+                "put a value in double quotes to search for it as it is, such as \"why?\"");
         printStream.println("Enter your choice : ");
         key = scanner.next();
+        query = null;
         while (!parser.checkKey(key)) {
+            // Queries come first as one can end with a ? inside a value, such as subject~"why?"
+            if (Query.isQuery(key)) {
+                try {
+                    query = Query.parse(key);
+                    return;
+                } catch (InvalidQueryException e) {
+                    printStream.println(colour(Colour.RED) + e.getMessage() + colour(Colour.RESET));
+                    key = scanner.next();
+                    continue;
+                }
+            }
+            if (key.endsWith("?")) {
+                printCompletions(parser.completeKey(key.substring(0, key.length() - 1), COMPLETIONS));
+                key = scanner.next();
+                continue;
+            }
             if (key.equals("quit")) {
                 printStream.println("Exiting...");
                 System.exit(1);
             }
-            printStream.println(Colour.RED + "Invalid Key please try again : " + Colour.RESET);
+            printStream.println(colour(Colour.RED) + "Invalid Key please try again : " + colour(Colour.RESET));
+            suggestKeys(parser, key);
             key = scanner.next();
         }
-        printStream.println("please enter the value searching for or if empty type [] : ");
+        printStream.println("please enter the value searching for, prefix it with = for an exact match " +
+                "or if empty type [] : ");
         value = scanner.next();
+        while (value.endsWith("?")) {
+            String prefix = value.substring(0, value.length() - 1);
+            printCompletions(parser.completeValue(key, prefix.startsWith("=") ? prefix.substring(1) : prefix,
+                    COMPLETIONS));
+            value = scanner.next();
+        }
         value = (value.equals("[]")) ? "" : value;
+        // A leading = asks for the whole value to match instead of a partial match
+        mode = value.startsWith("=") ? MatchMode.EXACT : MatchMode.CONTAINS;
+        value = (mode == MatchMode.EXACT) ? value.substring(1) : value;
+        // A value in double quotes is searched for as it is, which is the only way to search for one ending with ?
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+    }
+
+    private void suggestKeys(GenericParser parser, String typed) {
+        // Keys sharing the longest start with what was typed, most likely the one meant when it was mistyped
+        for (int length = typed.length(); length > 0; length--) {
+            List<String> keys = parser.completeKey(typed.substring(0, length), COMPLETIONS);
+            if (!keys.isEmpty()) {
+                printStream.println("did you mean " + String.join(", ", keys));
+                return;
+            }
+        }
+    }
+
+    private void printCompletions(List<String> completions) {
+        if (completions.isEmpty()) {
+            printStream.println(colour(Colour.RED) + "Nothing to complete, please try again : " + colour(Colour.RESET));
+            return;
+        }
+        printStream.print(colour(Colour.GREEN));
+        completions.forEach(printStream::println);
+        printStream.print(colour(Colour.RESET));
+    }
+
+    private static String catalog(GenericParser parser) {
+        // The keys along with the type of their values, how many records hold them and how many distinct values
+        // they have so the user knows what is worth searching for
+        Dataset current = parser.getDataset();
+        StringBuilder catalog = new StringBuilder();
+        for (KeyStats stats : current.getCatalog()) {
+            catalog.append(String.format("%-20s %-10s in %d of %d records, %s%d distinct%n", stats.getKey(),
+                    stats.getType(), stats.getPresent(), current.size(), stats.isEstimated() ? "about " : "",
+                    stats.getDistinctElements()));
+        }
+        return catalog.toString();
     }
 
-    private JSONArray findItemsByKV(GenericParser parser, String key, String value) {
+    private void showResults(GenericParser parser, RenderPipeline.PageBuilder pageBuilder) throws DataLoadException {
+        // Show the results a page at a time, each page carries on the search from where the last one stopped
+        // on the same version of the data even if it has been reloaded in the mean time
+        Dataset searched = parser.getDataset();
+        int cursor = 0;
+        while (true) {
+            SearchPage results = findItemsByKV(parser, searched, key, value, mode, cursor);
+            if (results == null) {
+                return;
+            }
+            try {
+                renderer.render(searched, results.getOrdinals(), pageBuilder, pageWriter);
+            } catch (IOException e) {
+                printStream.println(colour(Colour.RED) + "Unable to display the page : " + e.getMessage() +
+                        colour(Colour.RESET));
+            }
+            if (!results.hasMore()) {
+                return;
+            }
+            printStream.println("Enter 'n' for the next " + AppConfig.PAGE_SIZE +
+                    " results or anything else to go back to the menu : ");
+            if (!scanner.next().trim().equalsIgnoreCase("n")) {
+                return;
+            }
+            cursor = results.getNextCursor();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void printStats(String exportFile) throws DataLoadException {
+        // Application level metrics followed by the metrics of the data sets loaded so far
+        List<Metrics> allMetrics = new ArrayList<>();
+        allMetrics.add(metrics);
+        for (DatasetLoader loader : List.of(userLoader, orgLoader, ticketLoader)) {
+            if (loader.getStatus().equals("ready")) {
+                allMetrics.add(loader.get().getMetrics());
+            }
+        }
+        if (exportFile.isEmpty()) {
+            allMetrics.forEach(component -> printStream.println(component.format()));
+            return;
+        }
+        JSONArray json = new JSONArray();
+        allMetrics.forEach(component -> json.add(component.toJSON()));
         try {
-            return parser.getMatchingObj(key, value);
+            Files.writeString(Path.of(exportFile), json.toJSONString());
+            printStream.println("Statistics saved to " + exportFile);
+        } catch (IOException e) {
+            printStream.println(colour(Colour.RED) + "Unable to save the statistics : " + e.getMessage() +
+                    colour(Colour.RESET));
+        }
+        printStream.println();
+    }
+
+    private String colour(Colour colour) {
+        // Plain text when colours are turned off
+        return AppConfig.COLOUR_OUTPUT ? colour.toString() : "";
+    }
+
+    private SearchPage findItemsByKV(GenericParser parser, Dataset searched, String key, String value, MatchMode mode,
+                                     int cursor) {
+        long start = System.nanoTime();
+        try {
+            if (query != null) {
+                return parser.search(searched, query, cursor, AppConfig.PAGE_SIZE);
+            }
+            return parser.search(searched, key, value, mode, cursor, AppConfig.PAGE_SIZE);
         } catch (Exception dnfException) {
-            printStream.println(Colour.RED + dnfException.getMessage() + Colour.RESET);
+            printStream.println(colour(Colour.RED) + dnfException.getMessage() + colour(Colour.RESET));
             printStream.println();
             return null;
+        } finally {
+            metrics.record("search " + parser.getMetrics().getName(), start);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,332 @@
+package com.dts.discover.jsearch.app;
+
+import com.dts.discover.jsearch.config.AppConfig;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.exception.DataNotFoundException;
+import com.dts.discover.jsearch.exception.InvalidQueryException;
+import com.dts.discover.jsearch.exception.KeyNotFoundException;
+import com.dts.discover.jsearch.parser.Dataset;
+import com.dts.discover.jsearch.parser.DatasetLoader;
+import com.dts.discover.jsearch.parser.GenericParser;
+import com.dts.discover.jsearch.parser.MatchMode;
+import com.dts.discover.jsearch.parser.Query;
+import com.dts.discover.jsearch.parser.SearchPage;
+import com.dts.discover.jsearch.stats.Metrics;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Serves the data sets over HTTP on the loopback interface so other tools can search them without loading the data
+ * themselves. Every request is answered with Json
+ *
+ *   GET /search?dataset=users&key=name&value=doe[&exact=true][&cursor=next][&limit=20]
+ *   GET /search?dataset=tickets&q=status=open and priority=high[&cursor=next][&limit=20]
+ *   GET /related?dataset=users&id=71     the record with that _id along with its related records
+ *   GET /datasets                        state, size and version of each data set
+ *   GET /schema?dataset=users            type, presence and distinct values of each key of a data set
+ *   GET /complete?dataset=users&prefix=na[&key=name][&limit=10]   keys, or values of a key, starting with the prefix
+ *   GET /stats                           search and request metrics
+ *
+ * The cursor of the next page carries the version of the data set the search ran on, as the offsets of a page only
+ * hold for that version. Once the data set has been reloaded the cursor is refused and the search has to start again.
+ *
+ * Requests are handled by a fixed number of worker threads with a bounded queue in front of them, once the queue
+ * is full the thread accepting the connections handles the request itself which holds off new connections until
+ * the workers catch up. The data sets are only read, so any number of requests search them at the same time.
+ */
+public class SearchServer {
+
+    // Requests waiting for a worker before new connections are held off
+    private static final int QUEUE_LENGTH = 256;
+
+    private final Map<String, DatasetLoader> datasets = new LinkedHashMap<>();
+    private final RelatedRecords related;
+    private final Metrics metrics = new Metrics("server");
+    private final HttpServer server;
+    private final ThreadPoolExecutor workers;
+
+    public SearchServer(List<DatasetLoader> loaders, int port, int threads) throws IOException {
+        loaders.forEach(loader -> datasets.put(loader.getName(), loader));
+        related = new RelatedRecords(loaders.get(0), loaders.get(1), loaders.get(2));
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        workers = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(QUEUE_LENGTH), runnable -> {
+                    Thread thread = new Thread(runnable, "search-server");
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+        server.setExecutor(workers);
+        server.createContext("/search", exchange -> handle(exchange, this::search));
+        server.createContext("/related", exchange -> handle(exchange, this::related));
+        server.createContext("/datasets", exchange -> handle(exchange, this::datasets));
+        server.createContext("/schema", exchange -> handle(exchange, this::schema));
+        server.createContext("/complete", exchange -> handle(exchange, this::complete));
+        server.createContext("/stats", exchange -> handle(exchange, this::stats));
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    public void stop() {
+        server.stop(0);
+        workers.shutdown();
+    }
+
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+
+    private void handle(HttpExchange exchange, RequestHandler handler) throws IOException {
+        long start = System.nanoTime();
+        int status = 200;
+        Object body;
+        try {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                throw new RequestException(405, "Only GET requests are supported");
+            }
+            body = handler.handle(parameters(exchange.getRequestURI().getRawQuery()));
+        } catch (RequestException e) {
+            status = e.status;
+            body = error(e.getMessage());
+        } catch (KeyNotFoundException e) {
+            status = 400;
+            body = error(e.getMessage());
+        } catch (DataLoadException e) {
+            status = 503;
+            body = error(e.getMessage());
+        } catch (RuntimeException e) {
+            status = 500;
+            body = error("Unable to handle the request : " + e.getMessage());
+        }
+        byte[] response = toJSONString(body).getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, response.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(response);
+        }
+        metrics.record("request " + exchange.getHttpContext().getPath(), start);
+        metrics.count("responses " + status, 1);
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object search(Map<String, String> parameters)
+            throws RequestException, DataLoadException, KeyNotFoundException {
+        DatasetLoader loader = dataset(parameters);
+        GenericParser parser = loader.get();
+        // Every page of a search runs on the version of the data set its first page ran on
+        Dataset searched = parser.getDataset();
+        int cursor = cursor(parameters, searched);
+        int limit = number(parameters, "limit", AppConfig.PAGE_SIZE, 1);
+        JSONObject result = new JSONObject();
+        try {
+            SearchPage page;
+            if (parameters.containsKey("q")) {
+                page = parser.search(searched, Query.parse(parameters.get("q")), cursor, limit);
+            } else {
+                String key = required(parameters, "key");
+                String value = required(parameters, "value");
+                MatchMode mode = Boolean.parseBoolean(parameters.get("exact")) ? MatchMode.EXACT : MatchMode.CONTAINS;
+                page = parser.search(searched, key, value, mode, cursor, limit);
+            }
+            result.put("results", page.getDataset().getObjs(page.getOrdinals()));
+            result.put("next", page.hasMore() ? searched.getVersion() + ":" + page.getNextCursor() : null);
+        } catch (DataNotFoundException e) {
+            result.put("results", new JSONArray());
+            result.put("next", null);
+        } catch (InvalidQueryException e) {
+            throw new RequestException(400, e.getMessage());
+        }
+        return result;
+    }
+
+    private Object related(Map<String, String> parameters)
+            throws RequestException, DataLoadException, KeyNotFoundException {
+        DatasetLoader loader = dataset(parameters);
+        String id = required(parameters, "id");
+        SearchPage page;
+        try {
+            page = loader.get().search(AppConfig.ID_KEY, id, MatchMode.EXACT, 0, 1);
+        } catch (DataNotFoundException e) {
+            throw new RequestException(404, e.getMessage());
+        }
+        return related.page(loader, page.getDataset(), page.getOrdinals()[0], new ArrayList<>());
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object datasets(Map<String, String> parameters) throws DataLoadException {
+        JSONArray result = new JSONArray();
+        for (DatasetLoader loader : datasets.values()) {
+            JSONObject dataset = new JSONObject();
+            dataset.put("name", loader.getName());
+            dataset.put("status", loader.getStatus());
+            if (loader.getStatus().equals("ready")) {
+                Dataset current = loader.get().getDataset();
+                dataset.put("records", current.size());
+                dataset.put("version", current.getVersion());
+            }
+            result.add(dataset);
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object schema(Map<String, String> parameters) throws RequestException, DataLoadException {
+        JSONArray result = new JSONArray();
+        dataset(parameters).get().getCatalog().forEach(stats -> result.add(stats.toJSON()));
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object complete(Map<String, String> parameters)
+            throws RequestException, DataLoadException, KeyNotFoundException {
+        // The keys held by the most records or the values held by the most records come first
+        GenericParser parser = dataset(parameters).get();
+        String prefix = required(parameters, "prefix");
+        int limit = number(parameters, "limit", 10, 1);
+        JSONArray result = new JSONArray();
+        if (!parameters.containsKey("key")) {
+            result.addAll(parser.completeKey(prefix, limit));
+        } else if (!parser.checkKey(parameters.get("key"))) {
+            throw new KeyNotFoundException("Field " + parameters.get("key") + " was not found");
+        } else {
+            result.addAll(parser.completeValue(parameters.get("key"), prefix, limit));
+        }
+        return result;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object stats(Map<String, String> parameters) throws DataLoadException {
+        JSONArray result = new JSONArray();
+        result.add(metrics.toJSON());
+        for (DatasetLoader loader : datasets.values()) {
+            if (loader.getStatus().equals("ready")) {
+                result.add(loader.get().getMetrics().toJSON());
+            }
+        }
+        return result;
+    }
+
+    private DatasetLoader dataset(Map<String, String> parameters) throws RequestException {
+        String name = required(parameters, "dataset");
+        if (!datasets.containsKey(name)) {
+            throw new RequestException(404, "Unknown data set " + name + ", expected one of " + datasets.keySet());
+        }
+        return datasets.get(name);
+    }
+
+    private static String required(Map<String, String> parameters, String name) throws RequestException {
+        // An empty value is allowed and searches for records without a value
+        if (!parameters.containsKey(name)) {
+            throw new RequestException(400, "Missing parameter " + name);
+        }
+        return parameters.get(name);
+    }
+
+    private static int cursor(Map<String, String> parameters, Dataset searched) throws RequestException {
+        // Either 0 for the first page or the next cursor of a previous page, made of the version and the offset
+        String cursor = parameters.getOrDefault("cursor", "0");
+        if (cursor.equals("0")) {
+            return 0;
+        }
+        int separator = cursor.indexOf(':');
+        try {
+            long version = Long.parseLong(cursor.substring(0, Math.max(separator, 0)));
+            int offset = Integer.parseInt(cursor.substring(separator + 1));
+            if (offset < 0) {
+                throw new NumberFormatException();
+            }
+            if (version != searched.getVersion()) {
+                throw new RequestException(409, "The data set has been reloaded since the search started, " +
+                        "start it again from cursor 0");
+            }
+            return offset;
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "Parameter cursor must be 0 or the next cursor of a previous page");
+        }
+    }
+
+    private static int number(Map<String, String> parameters, String name, int defaultValue, int minimum)
+            throws RequestException {
+        // A cursor starts at 0 while a limit of 0 would only ever return empty pages
+        try {
+            int number = parameters.containsKey(name) ? Integer.parseInt(parameters.get(name)) : defaultValue;
+            if (number < minimum) {
+                throw new NumberFormatException();
+            }
+            return number;
+        } catch (NumberFormatException e) {
+            throw new RequestException(400, "Parameter " + name + " must be a number of at least " + minimum);
+        }
+    }
+
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String parameter : query.split("&")) {
+            int equals = parameter.indexOf('=');
+            String name = equals < 0 ? parameter : parameter.substring(0, equals);
+            String value = equals < 0 ? "" : parameter.substring(equals + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject error(String message) {
+        JSONObject error = new JSONObject();
+        error.put("error", message);
+        return error;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static String toJSONString(Object body) {
+        // Related records come as lazy Iterables which the Json library can't write, turn those in to arrays
+        if (body instanceof JSONObject) {
+            JSONObject page = (JSONObject) body;
+            for (Object key : page.keySet()) {
+                if (page.get(key) instanceof Iterable && !(page.get(key) instanceof JSONArray)) {
+                    JSONArray records = new JSONArray();
+                    ((Iterable<Object>) page.get(key)).forEach(records::add);
+                    page.put(key, records);
+                }
+            }
+            return page.toJSONString();
+        }
+        return ((JSONArray) body).toJSONString();
+    }
+
+    private interface RequestHandler {
+        Object handle(Map<String, String> parameters)
+                throws RequestException, DataLoadException, KeyNotFoundException;
+    }
+
+    private static class RequestException extends Exception {
+        private final int status;
+
+        RequestException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+}
@@ -1,7 +1,58 @@
 package com.dts.discover.jsearch.config;
 
 public class AppConfig {
-    public final static String USER_FILE_URL = "users.json";
-    public final static String ORG_FILE_URL = "organizations.json";
-    public final static String TICKET_FILE_URL = "tickets.json";
+    // Data files can be pointed to a file system path using the system properties, defaults to the bundled resources.
+    // A path may also be a directory or a glob of several files, each holding a Json array or one record per line
+    public final static String USER_FILE_URL = System.getProperty("jsearch.users", "users.json");
+    public final static String ORG_FILE_URL = System.getProperty("jsearch.organizations", "organizations.json");
+    public final static String TICKET_FILE_URL = System.getProperty("jsearch.tickets", "tickets.json");
+
+    // Data files on the file system are split in to chunks of about this many megabytes which are parsed in parallel
+    public final static int CHUNK_MEGABYTES = Integer.getInteger("jsearch.chunk.mb", 16);
+
+    // Keys with more distinct values than the threshold keep them in memory mapped segment files under this directory
+    // rather than in the heap, so data sets larger than the heap can be searched. Empty keeps everything in the heap
+    public final static String SEGMENT_DIR = System.getProperty("jsearch.segments", "");
+    public final static int SEGMENT_THRESHOLD = Integer.getInteger("jsearch.segments.threshold", 65536);
+
+    // Parse the data sets only when they are first searched instead of loading all of them at start up
+    public final static boolean LAZY_LOADING = Boolean.getBoolean("jsearch.lazy");
+
+    // Reload a data set in the background whenever its data file changes, only applies to files on the file system
+    public final static boolean WATCH_FILES = Boolean.getBoolean("jsearch.watch");
+
+    // Binary snapshots of the parsed data sets are kept here to speed up the next start, empty value disables them.
+    // They default to the cache directory of the user rather than the shared temporary directory
+    public final static String SNAPSHOT_DIR =
+            System.getProperty("jsearch.snapshots", System.getProperty("user.home") + "/.cache/jsearch/snapshots");
+
+    // Colour the output when running in a terminal, -Djsearch.colour=false gives plain text for piping to a file
+    public final static boolean COLOUR_OUTPUT =
+            Boolean.parseBoolean(System.getProperty("jsearch.colour", String.valueOf(System.console() != null)));
+
+    // Number of search results shown at a time before asking to move on to the next page
+    public final static int PAGE_SIZE = Integer.getInteger("jsearch.page.size", 20);
+
+    // Threads putting together and formatting the result pages, which are written out in order as they are ready. A
+    // single thread streams each page row by row, more threads format whole pages in memory ahead of the writer, up
+    // to about this many megabytes of them
+    public final static int RENDER_THREADS =
+            Integer.getInteger("jsearch.render.threads", Runtime.getRuntime().availableProcessors());
+    public final static int RENDER_MEGABYTES = Integer.getInteger("jsearch.render.mb", 16);
+
+    // Limits of the search result cache of each data set, by number of searches and by megabytes of results
+    public final static int CACHE_ENTRIES = Integer.getInteger("jsearch.cache.entries", 1024);
+    public final static int CACHE_MEGABYTES = Integer.getInteger("jsearch.cache.mb", 64);
+
+    // Threads running the searches of a batch, 0 uses a virtual thread per search when the Java version has them
+    public final static int BATCH_THREADS = Integer.getInteger("jsearch.batch.threads", 0);
+
+    // Port of the HTTP server and the number of threads handling its requests
+    public final static int SERVER_PORT = Integer.getInteger("jsearch.server.port", 8080);
+    public final static int SERVER_THREADS =
+            Integer.getInteger("jsearch.server.threads", Runtime.getRuntime().availableProcessors());
+
+    // Keys used to relate the users and tickets to their organisation
+    public final static String ID_KEY = "_id";
+    public final static String ORG_ID_KEY = "organization_id";
 }
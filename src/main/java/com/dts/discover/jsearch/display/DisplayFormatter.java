@@ -2,9 +2,11 @@ package com.dts.discover.jsearch.display;
 
 import com.dts.discover.jsearch.config.Colour;
 import com.dts.discover.jsearch.exception.DataLoadException;
-import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
 import java.util.Arrays;
 import java.util.Iterator;
 import java.util.List;
@@ -13,10 +15,20 @@ public class DisplayFormatter {
 
     private JSONObject pageData = null;
     private List<String> displayOrder = null;
-    private StringBuffer output = new StringBuffer("\n");
+    // Page is built in memory, along with any rows added before it, unless writePage sends it on to a writer
+    private Appendable output = new StringBuilder("\n");
+
+    // Colour codes surrounding the headings and keys, resolved once so plain output costs nothing extra
+    private final String headingStart;
+    private final String keyStart;
+    private final String colourEnd;
 
-    @SuppressWarnings("unchecked")
     public DisplayFormatter(JSONObject pageData, List<String> displayOrder) throws DataLoadException {
+        this(pageData, displayOrder, true);
+    }
+
+    @SuppressWarnings("unchecked")
+    public DisplayFormatter(JSONObject pageData, List<String> displayOrder, boolean colour) throws DataLoadException {
         // Do some validations to see if there is correct data to render a page
         if (pageData == null || displayOrder == null) {
             throw new DataLoadException("Missing required data object");
@@ -26,27 +38,30 @@ public class DisplayFormatter {
         }
         this.pageData = pageData;
         this.displayOrder = displayOrder;
+        headingStart = colour ? Colour.MAGENTA_UNDERLINED.toString() : "";
+        keyStart = colour ? Colour.GREEN.toString() : "";
+        colourEnd = colour ? Colour.RESET.toString() : "";
     }
 
     public void addDataRow(String key, String value) {
         // Row of data is displayed as double colons separated (::) key value
-        output.append(Colour.GREEN);
-        output.append(key);
-        output.append(Colour.RESET);
-        output.append(" :: ");
-        output.append(value);
-        output.append('\n');
+        append(keyStart);
+        append(key);
+        append(colourEnd);
+        append(" :: ");
+        append(value);
+        append("\n");
     }
 
     public void addFooter() {
-        output.append('\n');
+        append("\n");
     }
 
     public void addHeading(String heading) {
-        output.append(Colour.MAGENTA_UNDERLINED);
-        output.append(heading.toUpperCase());
-        output.append(Colour.RESET);
-        output.append('\n');
+        append(headingStart);
+        append(heading.toUpperCase());
+        append(colourEnd);
+        append("\n");
     }
 
     public void addJsonObjectToPage(JSONObject obj) {
@@ -58,8 +73,29 @@ public class DisplayFormatter {
         }
     }
 
-    @SuppressWarnings("unchecked")
     public String formatPage() {
+        // Render the whole page in memory
+        if (!(output instanceof StringBuilder)) {
+            output = new StringBuilder("\n");
+        }
+        renderPage();
+        return output.toString();
+    }
+
+    public void writePage(Writer writer) throws IOException {
+        // Render the page row by row straight in to the writer, the page is never held in memory as a whole. Rows
+        // added before are written first, as formatPage keeps them at the top of the page
+        writer.append(output instanceof StringBuilder ? (StringBuilder) output : "\n");
+        output = writer;
+        try {
+            renderPage();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void renderPage() {
         // Render the page using the display order of objects
         for (String display : displayOrder) {
             // Add a heading for the parent object
@@ -68,10 +104,9 @@ public class DisplayFormatter {
             if (pageData.get(display) instanceof JSONObject) {
                 addJsonObjectToPage((JSONObject) pageData.get(display));
             }
-            // series of reoccurring objects
-            else if (pageData.get(display) instanceof JSONArray) {
-                JSONArray objList = (JSONArray) pageData.get(display);
-                Iterator<JSONObject> objIterator = objList.iterator();
+            // series of reoccurring objects, either a JSONArray or objects fetched one by one as they are rendered
+            else if (pageData.get(display) instanceof Iterable) {
+                Iterator<JSONObject> objIterator = ((Iterable<JSONObject>) pageData.get(display)).iterator();
                 int sequence = 1;
                 while (objIterator.hasNext()) {
                     // Add a heading to indicate the sequence number of reoccurring objects
@@ -86,6 +121,13 @@ public class DisplayFormatter {
             }
             addFooter();
         }
-        return output.toString();
+    }
+
+    private void append(String text) {
+        try {
+            output.append(text);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
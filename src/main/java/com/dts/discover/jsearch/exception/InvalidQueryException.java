@@ -0,0 +1,7 @@
+package com.dts.discover.jsearch.exception;
+
+public class InvalidQueryException extends Exception {
+    public InvalidQueryException(String errorMessage) {
+        super(errorMessage);
+    }
+}
@@ -0,0 +1,150 @@
+package com.dts.discover.jsearch.index;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * Trie of the distinct values of a key, or of the keys of a data set, giving the most common completions of a prefix.
+ * The values are sorted so the values below a node are a run of the sorted values, and the nodes are laid out breadth
+ * first in arrays with the children of a node next to each other in the order of their char. Every node keeps the
+ * values below it which are held by the most records, so the top completions of a prefix are read straight off the
+ * node the prefix leads to, one binary search over the children per char of the prefix.
+ *
+ * Values are looked up by their normalised (upper case) form and completed to their original form.
+ */
+public class CompletionTrie {
+
+    // Completions kept by each node, asking for more ranks the whole run of values below the node
+    public static final int TOP = 10;
+
+    // Values sorted by their normalised form along with their original form and the number of records holding them
+    private final String[] terms;
+    private final String[] labels;
+    private final int[] counts;
+    // Running total of the counts, so the records below a node are counted in one step
+    private final long[] totals;
+    // Per node the char leading to it, its children and the run of values below it
+    private final char[] chars;
+    private final int[] firstChild;
+    private final int[] children;
+    private final int[] from;
+    private final int[] to;
+    private final int[][] top;
+
+    public CompletionTrie(Map<String, Integer> counts, Map<String, String> labels) {
+        terms = counts.keySet().stream().sorted().toArray(String[]::new);
+        this.labels = Arrays.stream(terms).map(term -> labels.getOrDefault(term, term)).toArray(String[]::new);
+        this.counts = Arrays.stream(terms).mapToInt(counts::get).toArray();
+        totals = new long[terms.length + 1];
+        for (int i = 0; i < terms.length; i++) {
+            totals[i + 1] = totals[i] + this.counts[i];
+        }
+        // Nodes are added as their parent is visited, which keeps the children of a node together
+        List<int[]> nodes = new ArrayList<>();
+        nodes.add(new int[]{0, 0, 0, terms.length, 0});
+        for (int node = 0; node < nodes.size(); node++) {
+            int[] parent = nodes.get(node);
+            int depth = parent[1];
+            int start = parent[2];
+            // A value ending at this node sorts before the longer ones below it
+            if (start < parent[3] && terms[start].length() == depth) {
+                start++;
+            }
+            parent[4] = nodes.size();
+            while (start < parent[3]) {
+                char c = terms[start].charAt(depth);
+                int end = start;
+                while (end < parent[3] && terms[end].charAt(depth) == c) {
+                    end++;
+                }
+                nodes.add(new int[]{c, depth + 1, start, end, 0});
+                start = end;
+            }
+        }
+        chars = new char[nodes.size()];
+        firstChild = new int[nodes.size()];
+        children = new int[nodes.size()];
+        from = new int[nodes.size()];
+        to = new int[nodes.size()];
+        top = new int[nodes.size()][];
+        for (int node = 0; node < nodes.size(); node++) {
+            int[] fields = nodes.get(node);
+            chars[node] = (char) fields[0];
+            from[node] = fields[2];
+            to[node] = fields[3];
+            firstChild[node] = fields[4];
+            children[node] = (node + 1 < nodes.size() ? nodes.get(node + 1)[4] : nodes.size()) - fields[4];
+        }
+        // Children come after their parent, so going backwards the top values of the children are known by the time
+        // their parent merges them with the value ending at the parent itself
+        for (int node = nodes.size() - 1; node >= 0; node--) {
+            List<Integer> candidates = new ArrayList<>();
+            if (from[node] < to[node] && terms[from[node]].length() == nodes.get(node)[1]) {
+                candidates.add(from[node]);
+            }
+            for (int child = firstChild[node]; child < firstChild[node] + children[node]; child++) {
+                Arrays.stream(top[child]).forEach(candidates::add);
+            }
+            top[node] = candidates.stream().sorted(byCount()).limit(TOP).mapToInt(Integer::intValue).toArray();
+        }
+    }
+
+    public List<String> complete(String normalisedPrefix, int limit) {
+        // Original form of the values starting with the prefix, the ones held by the most records first
+        int node = find(normalisedPrefix);
+        if (node < 0) {
+            return List.of();
+        }
+        int[] ranked = limit <= TOP ? top[node] :
+                IntStream.range(from[node], to[node]).boxed().sorted(byCount()).mapToInt(Integer::intValue).toArray();
+        return Arrays.stream(ranked).limit(limit).mapToObj(term -> labels[term]).collect(Collectors.toList());
+    }
+
+    public String[] terms(String normalisedPrefix) {
+        // Normalised values starting with the prefix
+        int node = find(normalisedPrefix);
+        return node < 0 ? new String[0] : Arrays.copyOfRange(terms, from[node], to[node]);
+    }
+
+    public long count(String normalisedPrefix) {
+        // Records holding a value starting with the prefix, a record holding several of them is counted for each
+        int node = find(normalisedPrefix);
+        return node < 0 ? 0 : totals[to[node]] - totals[from[node]];
+    }
+
+    private int find(String normalisedPrefix) {
+        // Node the prefix leads to, -1 if no value starts with it
+        int node = 0;
+        for (int i = 0; i < normalisedPrefix.length(); i++) {
+            char c = normalisedPrefix.charAt(i);
+            int low = firstChild[node];
+            int high = low + children[node] - 1;
+            node = -1;
+            while (low <= high) {
+                int middle = (low + high) >>> 1;
+                if (chars[middle] < c) {
+                    low = middle + 1;
+                } else if (chars[middle] > c) {
+                    high = middle - 1;
+                } else {
+                    node = middle;
+                    break;
+                }
+            }
+            if (node < 0) {
+                return -1;
+            }
+        }
+        return node;
+    }
+
+    private Comparator<Integer> byCount() {
+        // Most records first, values held by as many records in the order of their normalised form
+        return Comparator.<Integer>comparingInt(term -> -counts[term]).thenComparingInt(term -> term);
+    }
+}
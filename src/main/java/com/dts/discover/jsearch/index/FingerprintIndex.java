@@ -0,0 +1,78 @@
+package com.dts.discover.jsearch.index;
+
+import java.util.Arrays;
+
+/*
+ * Index of a key held in segments, where the values themselves aren't kept in the heap. Each element is only known
+ * by the hash of its normalised (upper case) form, packed with the ordinal of its record in to a long and sorted, so
+ * the records holding a value are the run of entries with its hash, found with two binary searches. Eight bytes per
+ * element keeps exact lookups of keys such as _id from scanning every record, but values sharing a hash share the
+ * run, so the records found still have to be checked.
+ */
+public class FingerprintIndex {
+
+    private long[] entries = new long[16];
+    private int size = 0;
+    private boolean sorted = false;
+
+    public void add(String normalisedValue, int ordinal) {
+        if (size == entries.length) {
+            entries = Arrays.copyOf(entries, size << 1);
+        }
+        entries[size++] = (long) normalisedValue.hashCode() << 32 | ordinal;
+    }
+
+    public FingerprintIndex sort() {
+        // Called once every element is in, before the first lookup
+        entries = Arrays.copyOf(entries, size);
+        Arrays.sort(entries);
+        sorted = true;
+        return this;
+    }
+
+    public int[] candidates(String normalisedValue) {
+        // Ordinals in order, a record holding several elements with the hash is only listed once
+        int from = from(normalisedValue);
+        int to = to(normalisedValue);
+        int[] ordinals = new int[to - from];
+        int count = 0;
+        for (int i = from; i < to; i++) {
+            int ordinal = (int) entries[i];
+            if (count == 0 || ordinals[count - 1] != ordinal) {
+                ordinals[count++] = ordinal;
+            }
+        }
+        return count == ordinals.length ? ordinals : Arrays.copyOf(ordinals, count);
+    }
+
+    public int estimate(String normalisedValue) {
+        return to(normalisedValue) - from(normalisedValue);
+    }
+
+    private int from(String normalisedValue) {
+        return lowerBound((long) normalisedValue.hashCode() << 32);
+    }
+
+    private int to(String normalisedValue) {
+        // Ordinals fit in 31 bits, so every entry with the hash is below the hash with the top bit of the ordinal set
+        return lowerBound((long) normalisedValue.hashCode() << 32 | 0x80000000L);
+    }
+
+    private int lowerBound(long entry) {
+        // First entry at or past the given one
+        if (!sorted) {
+            throw new IllegalStateException("Index looked up before it was sorted");
+        }
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (entries[middle] < entry) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,65 @@
+package com.dts.discover.jsearch.index;
+
+import com.dts.discover.jsearch.store.SnapshotIO;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Inverted index of a single key, maps the normalised (upper case) value to the ordinals of the records holding it.
+ * This is built once at load time and lets the exact value searches such as _id or organization_id lookups run in
+ * constant time instead of scanning every record.
+ */
+public class HashIndex {
+
+    private final Map<String, PostingList> postings = new HashMap<>();
+
+    public void add(String normalisedValue, int ordinal) {
+        postings.computeIfAbsent(normalisedValue, value -> new PostingList()).add(ordinal);
+    }
+
+    public int[] lookup(String normalisedValue) {
+        PostingList postingList = postings.get(normalisedValue);
+        return postingList == null ? PostingList.EMPTY : postingList.toArray();
+    }
+
+    public int count(String normalisedValue) {
+        // Number of records holding the value, without copying their ordinals
+        PostingList postingList = postings.get(normalisedValue);
+        return postingList == null ? 0 : postingList.size();
+    }
+
+    public int distinctValues() {
+        return postings.size();
+    }
+
+    public void append(HashIndex other, int offset) {
+        // Merge in an index of records which follow the records of this one, their ordinals shifted by the offset
+        other.postings.forEach((value, postingList) ->
+                postings.computeIfAbsent(value, key -> new PostingList()).append(postingList, offset));
+    }
+
+    public HashIndex copy() {
+        // The posting lists are copied on write so extending the copy leaves this index untouched
+        HashIndex copy = new HashIndex();
+        postings.forEach((value, postingList) -> copy.postings.put(value, postingList.copy()));
+        return copy;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(postings.size());
+        for (Map.Entry<String, PostingList> entry : postings.entrySet()) {
+            SnapshotIO.writeString(out, entry.getKey());
+            SnapshotIO.writeInts(out, entry.getValue().toArray());
+        }
+    }
+
+    public void readFrom(ByteBuffer in) {
+        for (int i = in.getInt(); i > 0; i--) {
+            postings.put(SnapshotIO.readString(in), new PostingList(SnapshotIO.readInts(in)));
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.dts.discover.jsearch.index;
+
+import java.util.Arrays;
+
+/*
+ * Growable list of record ordinals used while building the indexes. Ordinals are added in load order so the
+ * resulting array is always sorted, which keeps the search results in the same order as the source file.
+ *
+ * A copy shares the ordinals with the original until it is added to, so a published index can be extended in to a
+ * new one without the readers of the original seeing any change.
+ */
+public class PostingList {
+
+    public static final int[] EMPTY = new int[0];
+
+    private int[] ordinals;
+    private int size;
+    // Ordinals are shared with another list and have to be copied before the first add
+    private boolean shared = false;
+
+    public PostingList() {
+        ordinals = new int[4];
+        size = 0;
+    }
+
+    public PostingList(int[] ordinals) {
+        this.ordinals = ordinals;
+        size = ordinals.length;
+    }
+
+    public void add(int ordinal) {
+        // The same record may add the same value more than once, keep only one entry for it
+        if (size > 0 && ordinals[size - 1] == ordinal) {
+            return;
+        }
+        if (size == ordinals.length || shared) {
+            ordinals = Arrays.copyOf(ordinals, Math.max(4, size << 1));
+            shared = false;
+        }
+        ordinals[size++] = ordinal;
+    }
+
+    public void append(PostingList other, int offset) {
+        // Add the ordinals of a list built over records which follow the records of this one
+        if (size + other.size > ordinals.length || shared) {
+            ordinals = Arrays.copyOf(ordinals, Math.max(size + other.size, size << 1));
+            shared = false;
+        }
+        for (int i = 0; i < other.size; i++) {
+            ordinals[size++] = other.ordinals[i] + offset;
+        }
+    }
+
+    public PostingList copy() {
+        PostingList copy = new PostingList(ordinals);
+        copy.size = size;
+        copy.shared = true;
+        return copy;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int[] toArray() {
+        return Arrays.copyOf(ordinals, size);
+    }
+
+    public static int[] union(int[] left, int[] right) {
+        // Merge of two sorted lists, ordinals in both are only kept once
+        int[] result = new int[left.length + right.length];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length || j < right.length) {
+            if (j == right.length || (i < left.length && left[i] < right[j])) {
+                result[size++] = left[i++];
+            } else if (i == left.length || right[j] < left[i]) {
+                result[size++] = right[j++];
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    public static int[] intersect(int[] left, int[] right) {
+        // Both lists are sorted so a single merge pass is enough
+        int[] result = new int[Math.min(left.length, right.length)];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < left.length && j < right.length) {
+            if (left[i] < right[j]) {
+                i++;
+            } else if (left[i] > right[j]) {
+                j++;
+            } else {
+                result[size++] = left[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+}
@@ -0,0 +1,177 @@
+package com.dts.discover.jsearch.index;
+
+import com.dts.discover.jsearch.store.Column;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Arrays;
+import java.util.Comparator;
+
+/*
+ * Sorted index of a key holding only whole numbers or only timestamps such as 2016-04-28T11:19:34 -10:00. Every
+ * distinct value is turned in to a long once, timestamps as seconds since the epoch, and the records are kept in the
+ * order of their values so the records within a range are a slice found with two binary searches.
+ *
+ * Built from the column once all the records are in, a key with any other kind of value doesn't get one. Null and
+ * empty values are left out of the index like missing ones, so a sparse due_at still gets one.
+ */
+public class RangeIndex {
+
+    public enum Type {
+        NUMBER, TIMESTAMP
+    }
+
+    private static final DateTimeFormatter TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss XXX");
+
+    private final Type type;
+    // Value of each distinct value code of the column, and whether the code has one at all
+    private final long[] codeValues;
+    private final boolean[] codePresent;
+    // Values of the records in ascending order along with the records themselves
+    private final long[] sortedValues;
+    private final int[] sortedOrdinals;
+
+    private RangeIndex(Type type, long[] codeValues, boolean[] codePresent, long[] sortedValues, int[] sortedOrdinals) {
+        this.type = type;
+        this.codeValues = codeValues;
+        this.codePresent = codePresent;
+        this.sortedValues = sortedValues;
+        this.sortedOrdinals = sortedOrdinals;
+    }
+
+    public static RangeIndex build(Column column, int records) {
+        // Null unless every value of the column other than null or empty ones is of the same type
+        Type type = null;
+        long[] codeValues = new long[column.distinctValues()];
+        boolean[] codePresent = new boolean[codeValues.length];
+        for (int code = 0; code < codeValues.length; code++) {
+            Object value = column.value(code);
+            if (value == null || value.toString().isEmpty()) {
+                continue;
+            }
+            Type valueType = value instanceof Long ? Type.NUMBER : isTimestamp(value) ? Type.TIMESTAMP : null;
+            if (valueType == null || (type != null && type != valueType)) {
+                return null;
+            }
+            type = valueType;
+            codeValues[code] = type == Type.NUMBER ? (Long) value : parseTimestamp((String) value);
+            codePresent[code] = true;
+        }
+        if (type == null) {
+            return null;
+        }
+        // Rank the distinct values, then lay the records out by the rank of their value keeping the load order
+        // within the same value, which costs a sort of the distinct values rather than of all the records
+        Integer[] byValue = new Integer[codeValues.length];
+        Arrays.setAll(byValue, code -> code);
+        Arrays.sort(byValue, Comparator.comparingLong(code -> codeValues[code]));
+        int[] rank = new int[codeValues.length];
+        for (int i = 0; i < byValue.length; i++) {
+            rank[byValue[i]] = i;
+        }
+        int[] offsets = new int[codeValues.length + 1];
+        for (int ordinal = 0; ordinal < records; ordinal++) {
+            int code = column.code(ordinal);
+            if (code != Column.MISSING && codePresent[code]) {
+                offsets[rank[code] + 1]++;
+            }
+        }
+        for (int i = 0; i < codeValues.length; i++) {
+            offsets[i + 1] += offsets[i];
+        }
+        long[] sortedValues = new long[offsets[codeValues.length]];
+        int[] sortedOrdinals = new int[sortedValues.length];
+        for (int ordinal = 0; ordinal < records; ordinal++) {
+            int code = column.code(ordinal);
+            if (code != Column.MISSING && codePresent[code]) {
+                int position = offsets[rank[code]]++;
+                sortedValues[position] = codeValues[code];
+                sortedOrdinals[position] = ordinal;
+            }
+        }
+        return new RangeIndex(type, codeValues, codePresent, sortedValues, sortedOrdinals);
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public long parse(String text) {
+        // Bound of a range given as text, timestamps may leave out the time or the offset which is then UTC,
+        // and now stands for the current time
+        String bound = text.trim();
+        if (type == Type.NUMBER) {
+            return Long.parseLong(bound);
+        } else if (bound.equalsIgnoreCase("now")) {
+            return Instant.now().getEpochSecond();
+        } else if (bound.length() == 10) {
+            return LocalDate.parse(bound).atStartOfDay().toEpochSecond(ZoneOffset.UTC);
+        } else if (bound.length() == 19) {
+            return LocalDateTime.parse(bound).toEpochSecond(ZoneOffset.UTC);
+        } else if (bound.indexOf(' ') > 0) {
+            return parseTimestamp(bound);
+        }
+        return OffsetDateTime.parse(bound).toEpochSecond();
+    }
+
+    public int count(long from, long to) {
+        // Number of records with a value between from and to, both included
+        return from > to ? 0 : upperBound(to) - lowerBound(from);
+    }
+
+    public int[] range(long from, long to) {
+        // Records with a value between from and to in load order, like the posting lists of the other indexes
+        if (from > to) {
+            return PostingList.EMPTY;
+        }
+        int[] ordinals = Arrays.copyOfRange(sortedOrdinals, lowerBound(from), upperBound(to));
+        Arrays.sort(ordinals);
+        return ordinals;
+    }
+
+    public boolean matches(int code, long from, long to) {
+        return code != Column.MISSING && codePresent[code] && codeValues[code] >= from && codeValues[code] <= to;
+    }
+
+    private int lowerBound(long value) {
+        // Position of the first record with a value at or above the given one
+        int low = 0;
+        int high = sortedValues.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (sortedValues[middle] < value) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private int upperBound(long value) {
+        // Position just after the last record with a value at or below the given one
+        return value == Long.MAX_VALUE ? sortedValues.length : lowerBound(value + 1);
+    }
+
+    private static boolean isTimestamp(Object value) {
+        // Cheap check on the shape before trying to parse it
+        if (!(value instanceof String) || ((String) value).length() < 20 || ((String) value).charAt(10) != 'T') {
+            return false;
+        }
+        try {
+            parseTimestamp((String) value);
+            return true;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static long parseTimestamp(String value) {
+        return OffsetDateTime.parse(value, TIMESTAMP).toEpochSecond();
+    }
+}
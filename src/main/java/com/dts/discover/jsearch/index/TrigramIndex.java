@@ -0,0 +1,103 @@
+package com.dts.discover.jsearch.index;
+
+import com.dts.discover.jsearch.store.SnapshotIO;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Index of every three character sequence (trigram) found in the normalised values of a single key. A partial value
+ * search can only match a record which holds all the trigrams of the search value, so intersecting their posting
+ * lists gives a small set of candidates which then only need to be verified with a plain contains check.
+ *
+ * Search values shorter than a trigram can't be served by this index and must be scanned.
+ */
+public class TrigramIndex {
+
+    public static final int GRAM_LENGTH = 3;
+
+    private final Map<Long, PostingList> postings = new HashMap<>();
+
+    public void add(String normalisedValue, int ordinal) {
+        for (int i = 0; i + GRAM_LENGTH <= normalisedValue.length(); i++) {
+            postings.computeIfAbsent(gram(normalisedValue, i), gram -> new PostingList()).add(ordinal);
+        }
+    }
+
+    public static boolean canServe(String normalisedValue) {
+        return normalisedValue.length() >= GRAM_LENGTH;
+    }
+
+    public int estimate(String normalisedValue) {
+        // Upper bound of the number of candidates, the records holding the rarest trigram of the value
+        int estimate = Integer.MAX_VALUE;
+        for (int i = 0; i + GRAM_LENGTH <= normalisedValue.length(); i++) {
+            PostingList postingList = postings.get(gram(normalisedValue, i));
+            estimate = Math.min(estimate, postingList == null ? 0 : postingList.size());
+        }
+        return estimate;
+    }
+
+    public int[] candidates(String normalisedValue) {
+        int gramCount = normalisedValue.length() - GRAM_LENGTH + 1;
+        PostingList[] lists = new PostingList[gramCount];
+        for (int i = 0; i < gramCount; i++) {
+            lists[i] = postings.get(gram(normalisedValue, i));
+            if (lists[i] == null) {
+                // One of the trigrams is not in any record so nothing can match
+                return PostingList.EMPTY;
+            }
+        }
+        // Start from the most selective trigram so the intermediate results stay small
+        Arrays.sort(lists, Comparator.comparingInt(PostingList::size));
+        int[] result = lists[0].toArray();
+        for (int i = 1; i < lists.length && result.length > 0; i++) {
+            if (lists[i] != lists[i - 1]) {
+                result = PostingList.intersect(result, lists[i].toArray());
+            }
+        }
+        return result;
+    }
+
+    public void append(TrigramIndex other, int offset) {
+        // Merge in an index of records which follow the records of this one, their ordinals shifted by the offset
+        other.postings.forEach((gram, postingList) ->
+                postings.computeIfAbsent(gram, key -> new PostingList()).append(postingList, offset));
+    }
+
+    public TrigramIndex copy() {
+        // Only the map is copied, a posting list is duplicated the first time the copy adds to it
+        TrigramIndex copy = new TrigramIndex();
+        postings.forEach((gram, postingList) -> copy.postings.put(gram, postingList.copy()));
+        return copy;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(postings.size());
+        for (Map.Entry<Long, PostingList> entry : postings.entrySet()) {
+            out.writeLong(entry.getKey());
+            SnapshotIO.writeInts(out, entry.getValue().toArray());
+        }
+    }
+
+    public void readFrom(ByteBuffer in) {
+        for (int i = in.getInt(); i > 0; i--) {
+            long gram = in.getLong();
+            postings.put(gram, new PostingList(SnapshotIO.readInts(in)));
+        }
+    }
+
+    private static long gram(String value, int start) {
+        // Pack the three chars in to a single long, each char fits in 16 bits. The hash of the packed chars would only
+        // tell trigrams apart by their middle char and the xor of the other two, so the bits are spread with an odd
+        // multiplier, which keeps every trigram distinct
+        long packed =
+                ((long) value.charAt(start) << 32) | ((long) value.charAt(start + 1) << 16) | value.charAt(start + 2);
+        return packed * 0x9E3779B97F4A7C15L;
+    }
+}
@@ -0,0 +1,267 @@
+package com.dts.discover.jsearch.parser;
+
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/*
+ * Loads data files in to a data set by splitting them in to chunks of whole records, which are parsed and indexed in
+ * parallel on the common fork-join pool each in to a data set of its own. The partial data sets are appended to the
+ * target in the order of the chunks, so the records keep the order of the files whatever order the chunks finish in.
+ *
+ * NDJSON files are split on the line breaks found by seeking ahead. Json arrays are split on the commas between their
+ * records, found with a scan over the bytes which only keeps track of the nesting and the strings, so it runs well
+ * ahead of the parsing. Chunks are only split off as the parsing keeps up, which bounds the memory held by the chunks
+ * and the partial data sets waiting to be appended.
+ */
+class ChunkedLoader {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final long chunkBytes;
+
+    ChunkedLoader(long chunkBytes) {
+        this.chunkBytes = chunkBytes;
+    }
+
+    Dataset load(Dataset target, List<Path> files) throws IOException, ParseException {
+        // Chunks being parsed ahead of the one being appended
+        int window = 2 * ForkJoinPool.getCommonPoolParallelism();
+        Deque<ForkJoinTask<Dataset>> pending = new ArrayDeque<>();
+        try {
+            for (Path file : files) {
+                try (Splitter splitter = new Splitter(file)) {
+                    Chunk chunk;
+                    while ((chunk = splitter.next()) != null) {
+                        Chunk parsed = chunk;
+                        pending.add(ForkJoinPool.commonPool().submit(() -> parsed.parse(target.part())));
+                        if (pending.size() >= window) {
+                            target.append(join(pending.poll()));
+                        }
+                    }
+                }
+            }
+            while (!pending.isEmpty()) {
+                target.append(join(pending.poll()));
+            }
+            return target;
+        } finally {
+            // Left over when a chunk failed, their results aren't needed any more
+            pending.forEach(task -> task.cancel(false));
+        }
+    }
+
+    static Dataset parse(Dataset target, InputStream source) throws IOException, ParseException {
+        // Stream through the records of a single source in one go, either format is told apart by its first character
+        try (BufferedInputStream in = new BufferedInputStream(source)) {
+            in.mark(BUFFER_SIZE);
+            int first = in.read();
+            while (first != -1 && Character.isWhitespace(first)) {
+                first = in.read();
+            }
+            in.reset();
+            Reader reader = new InputStreamReader(in, StandardCharsets.ISO_8859_1);
+            return first == '{' ? parseLines(target, reader) : parseArray(target, reader);
+        }
+    }
+
+    private static Dataset parseArray(Dataset target, Reader source) throws IOException, ParseException {
+        // Using the lib Simple Json parser to stream through the data one record at a time
+        JSONParser parser = new JSONParser();
+        parser.parse(source, new RecordStreamHandler(target::add));
+        return target;
+    }
+
+    private static Dataset parseLines(Dataset target, Reader source) throws IOException, ParseException {
+        // One record per line, blank lines are skipped
+        JSONParser parser = new JSONParser();
+        BufferedReader lines = new BufferedReader(source);
+        String line;
+        while ((line = lines.readLine()) != null) {
+            if (line.isBlank()) {
+                continue;
+            }
+            Object record = parser.parse(line);
+            if (!(record instanceof JSONObject)) {
+                throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+            }
+            target.add((JSONObject) record);
+        }
+        return target;
+    }
+
+    private static Dataset join(ForkJoinTask<Dataset> task) throws IOException, ParseException {
+        try {
+            return task.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading the data");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof ParseException) {
+                throw (ParseException) e.getCause();
+            } else if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+    }
+
+    /*
+     * Records of a file between two byte positions, the separator at the end isn't part of it. Chunks of an array
+     * other than the first and the last are put back in to brackets of their own.
+     */
+    private static class Chunk {
+        private final Path file;
+        private final long start;
+        private final long end;
+        private final boolean lines;
+        private final boolean first;
+        private final boolean last;
+
+        private Chunk(Path file, long start, long end, boolean lines, boolean first, boolean last) {
+            this.file = file;
+            this.start = start;
+            this.end = end;
+            this.lines = lines;
+            this.first = first;
+            this.last = last;
+        }
+
+        private Dataset parse(Dataset target) throws IOException, ParseException {
+            byte[] bytes = new byte[(int) (end - start)];
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining() && channel.read(buffer, start + buffer.position()) > 0) {
+                    // Keep reading until the chunk is complete
+                }
+            }
+            InputStream records = new ByteArrayInputStream(bytes);
+            if (lines) {
+                return parseLines(target, new InputStreamReader(records, StandardCharsets.ISO_8859_1));
+            }
+            if (!first) {
+                records = new SequenceInputStream(new ByteArrayInputStream(new byte[]{'['}), records);
+            }
+            if (!last) {
+                records = new SequenceInputStream(records, new ByteArrayInputStream(new byte[]{']'}));
+            }
+            return parseArray(target, new InputStreamReader(records, StandardCharsets.ISO_8859_1));
+        }
+    }
+
+    /*
+     * Splits a file in to chunks one at a time, cutting each one at the first record boundary past the chunk size.
+     */
+    private class Splitter implements AutoCloseable {
+        private final Path file;
+        private final FileChannel channel;
+        private final long size;
+        private final boolean lines;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private long chunkStart = 0;
+        // Scan state of an array, position of the next byte to look at and what it's inside of
+        private long position = 0;
+        private int depth = 0;
+        private boolean inString = false;
+        private boolean escaped = false;
+
+        private Splitter(Path file) throws IOException {
+            this.file = file;
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            size = channel.size();
+            lines = firstCharacter() == '{';
+        }
+
+        private Chunk next() throws IOException {
+            if (chunkStart >= size) {
+                return null;
+            }
+            long end = lines ? lineBreakAfter(chunkStart + chunkBytes) : commaAfter(chunkStart + chunkBytes);
+            Chunk chunk = new Chunk(file, chunkStart, end, lines, chunkStart == 0, end >= size);
+            // The separator belongs to neither chunk
+            chunkStart = end + 1;
+            return chunk;
+        }
+
+        private int firstCharacter() throws IOException {
+            ByteBuffer read = ByteBuffer.wrap(buffer);
+            int count = channel.read(read, 0);
+            for (int i = 0; i < count; i++) {
+                if (!Character.isWhitespace(buffer[i])) {
+                    return buffer[i];
+                }
+            }
+            return -1;
+        }
+
+        private long lineBreakAfter(long from) throws IOException {
+            // Position of the first line break at or after the given position, the end of the file if there's none
+            long at = from;
+            while (at < size) {
+                int count = channel.read(ByteBuffer.wrap(buffer), at);
+                for (int i = 0; i < count; i++) {
+                    if (buffer[i] == '\n') {
+                        return at + i;
+                    }
+                }
+                at += Math.max(count, 1);
+            }
+            return size;
+        }
+
+        private long commaAfter(long from) throws IOException {
+            // Position of the first comma between two records of the top level array at or after the given position
+            while (position < size) {
+                int count = channel.read(ByteBuffer.wrap(buffer), position);
+                for (int i = 0; i < count; i++) {
+                    byte c = buffer[i];
+                    if (inString) {
+                        if (escaped) {
+                            escaped = false;
+                        } else if (c == '\\') {
+                            escaped = true;
+                        } else if (c == '"') {
+                            inString = false;
+                        }
+                    } else if (c == '"') {
+                        inString = true;
+                    } else if (c == '[' || c == '{') {
+                        depth++;
+                    } else if (c == ']' || c == '}') {
+                        depth--;
+                    } else if (c == ',' && depth == 1 && position + i >= from) {
+                        position += i + 1;
+                        return position - 1;
+                    }
+                }
+                position += Math.max(count, 1);
+            }
+            return size;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+}
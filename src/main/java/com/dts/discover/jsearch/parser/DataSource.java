@@ -0,0 +1,118 @@
+package com.dts.discover.jsearch.parser;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/*
+ * Where the records of a data set come from, given as one of
+ *
+ *   tickets.json               a file on the file system, or a resource in the class path when there is no such file
+ *   /data/tickets              every .json, .ndjson and .jsonl file of the directory
+ *   /data/tickets/part-*.json  every file of the directory matching the glob
+ *
+ * Each file holds either a Json array of records or one record per line (NDJSON), told apart by its first character.
+ * The files of a directory or glob are read in the order of their names and looked up again on every load, so new
+ * shards are picked up when the data set is reloaded.
+ */
+class DataSource {
+
+    private static final String GLOB_CHARACTERS = "*?{[";
+
+    private final String name;
+    // Directory holding the files and the glob they have to match, null for a single file or a resource
+    private final Path directory;
+    private final PathMatcher matcher;
+
+    DataSource(String name) {
+        this.name = name;
+        int glob = firstGlobCharacter(name);
+        if (glob >= 0) {
+            Path pattern = Path.of(name).toAbsolutePath().normalize();
+            directory = pattern.getParent();
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + pattern);
+        } else if (Files.isDirectory(Path.of(name))) {
+            directory = Path.of(name).toAbsolutePath().normalize();
+            matcher = FileSystems.getDefault().getPathMatcher("glob:" + directory + "/*.{json,ndjson,jsonl}");
+        } else {
+            directory = null;
+            matcher = null;
+        }
+    }
+
+    Path getFile() {
+        // The single data file on the file system, null when the data comes from several files or the class path
+        Path path = Path.of(name);
+        return directory == null && Files.isRegularFile(path) ? path : null;
+    }
+
+    Path getDirectory() {
+        // Directory whose changes may change the data, null when the data comes from the class path
+        Path file = getFile();
+        return file != null ? file.toAbsolutePath().normalize().getParent() : directory;
+    }
+
+    boolean isSourceFile(Path path) {
+        // Whether a file, existing or not, is or would be one of the data files
+        Path absolute = path.toAbsolutePath().normalize();
+        Path file = getFile();
+        if (file != null) {
+            return absolute.equals(file.toAbsolutePath().normalize());
+        }
+        return directory != null && absolute.getParent().equals(directory) && matcher.matches(absolute);
+    }
+
+    List<Path> files() throws IOException {
+        // Data files on the file system in the order their records are loaded, empty for a resource
+        Path file = getFile();
+        if (file != null) {
+            return List.of(file);
+        } else if (directory == null) {
+            return Collections.emptyList();
+        }
+        try (Stream<Path> entries = Files.list(directory)) {
+            List<Path> files = entries.filter(Files::isRegularFile).filter(matcher::matches).sorted()
+                    .collect(Collectors.toList());
+            if (files.isEmpty()) {
+                throw new FileNotFoundException("No data files found for " + name);
+            }
+            return files;
+        }
+    }
+
+    InputStream open() throws IOException {
+        // Content of all the data files one after the other, or of the resource
+        List<Path> files = files();
+        if (files.isEmpty()) {
+            InputStream resource = getClass().getClassLoader().getResourceAsStream(name);
+            if (resource == null) {
+                throw new FileNotFoundException(name);
+            }
+            return resource;
+        }
+        List<InputStream> streams = new ArrayList<>();
+        for (Path file : files) {
+            streams.add(Files.newInputStream(file));
+        }
+        return new SequenceInputStream(Collections.enumeration(streams));
+    }
+
+    private static int firstGlobCharacter(String name) {
+        for (int i = 0; i < name.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(name.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
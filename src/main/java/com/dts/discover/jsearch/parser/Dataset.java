@@ -0,0 +1,786 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.exception.InvalidQueryException;
+import com.dts.discover.jsearch.exception.KeyNotFoundException;
+import com.dts.discover.jsearch.index.CompletionTrie;
+import com.dts.discover.jsearch.index.FingerprintIndex;
+import com.dts.discover.jsearch.index.HashIndex;
+import com.dts.discover.jsearch.index.PostingList;
+import com.dts.discover.jsearch.index.RangeIndex;
+import com.dts.discover.jsearch.index.TrigramIndex;
+import com.dts.discover.jsearch.store.Column;
+import com.dts.discover.jsearch.store.RecordStore;
+import com.dts.discover.jsearch.store.SegmentStore;
+import com.dts.discover.jsearch.store.SnapshotIO;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+import java.util.function.IntPredicate;
+import java.util.function.ObjIntConsumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+import java.util.function.ToIntFunction;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/*
+ * The records of a data set along with their indexes as of one version of the source file. A data set is filled in
+ * while it is being loaded and its records never change once it has been sealed, so it can be searched by any number
+ * of threads while the next version is being built from a fresh copy. What is only worked out when first needed, the
+ * indexes of long text and trigram indexes along with the folded forms of the values, is built once under a lock of
+ * the key and published whole. The ordinals returned by a search are only meaningful to the data set they came from.
+ */
+public class Dataset {
+
+    // Intersecting a posting list with the candidates costs a pass over both, so once the posting list is this many
+    // times longer than the candidates it's cheaper to check the candidates one by one
+    private static final int INTERSECT_FACTOR = 8;
+    // Keys with at most this many distinct values, none of them longer than the longest completion, get a trie of
+    // their values. Past that the values are names, ids or text which are searched for rather than completed
+    private static final int COMPLETION_VALUES = 1024;
+    private static final int COMPLETION_LENGTH = 64;
+
+    private final long version;
+    private final RecordStore store;
+    // Built when the data set is sealed, or when first searched for long text, then kept up to date as records are
+    // added to later versions
+    private final Map<String, HashIndex> exactIndexes;
+    // Built the first time a key is searched for part of its value, then kept up to date the same way
+    private final Map<String, TrigramIndex> trigramIndexes;
+    // Built the first time a key held in segments is searched for its whole value
+    private final Map<String, FingerprintIndex> fingerprintIndexes = new ConcurrentHashMap<>();
+    // Locks of the keys whose indexes are built when first searched, so a build only holds up searches of its own key
+    private final Map<String, Object> indexLocks = new ConcurrentHashMap<>();
+    // Built when the data set is sealed for the keys holding only numbers or only timestamps
+    private final Map<String, RangeIndex> rangeIndexes = new HashMap<>();
+    // Using a TreeSet so the keys are sorted
+    private final Set<String> keys = new TreeSet<String>();
+    private String keyString;
+    // Statistics of each key sorted by the key
+    private Map<String, KeyStats> catalog;
+    // Tries completing the keys and the values of the keys with few distinct values
+    private CompletionTrie keyCompletions;
+    private Map<String, CompletionTrie> valueCompletions;
+
+    Dataset(long version) {
+        this(version, null);
+    }
+
+    Dataset(long version, SegmentStore segments) {
+        // Keys with more distinct values than the segments take are kept in them and scanned rather than indexed
+        this.version = version;
+        store = new RecordStore(segments);
+        exactIndexes = new ConcurrentHashMap<>();
+        trigramIndexes = new ConcurrentHashMap<>();
+    }
+
+    Dataset(Dataset previous, long version) {
+        // Start from the records and indexes of the previous version, used when records are appended to the source
+        this.version = version;
+        store = previous.store.copy();
+        exactIndexes = new ConcurrentHashMap<>();
+        trigramIndexes = new ConcurrentHashMap<>();
+        previous.exactIndexes.forEach((key, index) -> exactIndexes.put(key, index.copy()));
+        previous.trigramIndexes.forEach((key, index) -> trigramIndexes.put(key, index.copy()));
+    }
+
+    @SuppressWarnings("unchecked")
+    void add(JSONObject record) {
+        // Add the record to the store and to the indexes already built, ordinals are the positions in the store
+        int ordinal = store.add(record);
+        for (String key : (Set<String>) record.keySet()) {
+            Column column = store.column(key);
+            if (column.isSpilled()) {
+                exactIndexes.remove(key);
+                trigramIndexes.remove(key);
+                continue;
+            }
+            HashIndex exactIndex = exactIndexes.get(key);
+            TrigramIndex trigramIndex = trigramIndexes.get(key);
+            if (exactIndex == null && trigramIndex == null) {
+                continue;
+            }
+            // Each element of an array is indexed on its own so tags are looked up one by one
+            for (String normalisedValue : column.foldedElements(column.code(ordinal))) {
+                if (exactIndex != null) {
+                    exactIndex.add(normalisedValue, ordinal);
+                }
+                if (trigramIndex != null) {
+                    trigramIndex.add(normalisedValue, ordinal);
+                }
+            }
+        }
+    }
+
+    void append(Dataset part) {
+        // Add the records and indexes of a data set loaded separately, its records follow the records of this one
+        int offset = store.size();
+        store.append(part.store);
+        // Indexes already built take in the records of the part, from its own index when it has one. The rest are
+        // built once the records are all in
+        for (Column column : part.store.columns()) {
+            HashIndex exactIndex = exactIndexes.get(column.getKey());
+            HashIndex partExactIndex = part.exactIndexes.get(column.getKey());
+            if (exactIndex != null && partExactIndex != null) {
+                exactIndex.append(partExactIndex, offset);
+            } else if (exactIndex != null) {
+                forEachElement(column, part.size(), (normalisedValue, ordinal) ->
+                        exactIndex.add(normalisedValue, offset + ordinal));
+            }
+            TrigramIndex trigramIndex = trigramIndexes.get(column.getKey());
+            TrigramIndex partTrigramIndex = part.trigramIndexes.get(column.getKey());
+            if (trigramIndex != null && partTrigramIndex != null) {
+                trigramIndex.append(partTrigramIndex, offset);
+            } else if (trigramIndex != null) {
+                forEachElement(column, part.size(), (normalisedValue, ordinal) ->
+                        trigramIndex.add(normalisedValue, offset + ordinal));
+            }
+        }
+        dropSpilledIndexes();
+    }
+
+    Dataset part() {
+        // Empty data set to load records in to which are appended to this one later, sharing its segments
+        return new Dataset(0, store.getSegments());
+    }
+
+    void deleteSegments() {
+        // Called once the data set is replaced by one which doesn't share its segments
+        if (store.getSegments() != null) {
+            store.getSegments().delete();
+        }
+    }
+
+    private HashIndex exactIndex(String key) {
+        return lazyIndex(exactIndexes, key, () -> {
+            HashIndex index = new HashIndex();
+            forEachElement(store.column(key), store.size(), index::add);
+            return index;
+        });
+    }
+
+    private TrigramIndex trigramIndex(String key) {
+        // Trigrams make up the bulk of the indexes of long text values such as descriptions, so they are only worked
+        // out for the keys which are searched for part of their value
+        return lazyIndex(trigramIndexes, key, () -> {
+            TrigramIndex index = new TrigramIndex();
+            forEachElement(store.column(key), store.size(), index::add);
+            return index;
+        });
+    }
+
+    private FingerprintIndex fingerprintIndex(String key) {
+        // Whole value lookups of keys held in segments, such as _id on a data set larger than the heap
+        return lazyIndex(fingerprintIndexes, key, () -> {
+            FingerprintIndex index = new FingerprintIndex();
+            forEachElement(store.column(key), store.size(), index::add);
+            return index.sort();
+        });
+    }
+
+    private <T> T lazyIndex(Map<String, T> indexes, String key, Supplier<T> build) {
+        // Searches of the key wait for the one building the index. Building it in computeIfAbsent instead would hold
+        // up the keys sharing its bin of the map as well
+        T index = indexes.get(key);
+        if (index != null) {
+            return index;
+        }
+        synchronized (indexLocks.computeIfAbsent(key, k -> new Object())) {
+            index = indexes.get(key);
+            if (index == null) {
+                index = build.get();
+                indexes.put(key, index);
+            }
+            return index;
+        }
+    }
+
+    private static void forEachElement(Column column, int records, ObjIntConsumer<String> action) {
+        // Folded elements of the first records of a column along with the ordinal of their record
+        for (int ordinal = 0; ordinal < records; ordinal++) {
+            int code = column.code(ordinal);
+            if (code != Column.MISSING) {
+                for (String normalisedValue : column.foldedElements(code)) {
+                    action.accept(normalisedValue, ordinal);
+                }
+            }
+        }
+    }
+
+    private boolean isIndexable(String key) {
+        // Keys held in segments have no indexes at all, the indexes of the others are built when needed
+        Column column = store.column(key);
+        return column != null && !column.isSpilled();
+    }
+
+    private void dropSpilledIndexes() {
+        // The indexes of a key are only complete while its values are in the heap
+        for (Column column : store.columns()) {
+            if (column.isSpilled()) {
+                exactIndexes.remove(column.getKey());
+                trigramIndexes.remove(column.getKey());
+            }
+        }
+    }
+
+    Dataset seal() {
+        // Called once every record is in, nothing is added after this. Exact indexes of all but long text are built
+        // up front, each key on its own so the columns are gone through in parallel. Long text is rarely looked up by
+        // its whole value, so its hash index is only built the first time it is searched
+        store.columns().forEach(Column::compact);
+        store.columns().parallelStream()
+                .filter(column -> !column.isSpilled() && column.averageLength() <= Column.LONG_TEXT_LENGTH)
+                .forEach(column -> exactIndex(column.getKey()));
+        for (Column column : store.columns()) {
+            keys.add(column.getKey());
+            RangeIndex rangeIndex = RangeIndex.build(column, store.size());
+            if (rangeIndex != null) {
+                rangeIndexes.put(column.getKey(), rangeIndex);
+            }
+        }
+        // Statistics of each key are worked out on their own so the columns are gone through in parallel
+        catalog = store.columns().parallelStream()
+                .map(column -> KeyStats.of(column, store.size(),
+                        getRangeType(column.getKey()) == RangeIndex.Type.TIMESTAMP,
+                        exactIndexes.containsKey(column.getKey()) ? exactIndexes.get(column.getKey()).distinctValues() :
+                                column.isDeduplicated() ? column.distinctElements() : 0))
+                .collect(Collectors.toMap(KeyStats::getKey, stats -> stats, (left, right) -> left, TreeMap::new));
+        // Keys are completed by the number of records holding them, keys differing only by case count together
+        Map<String, Integer> keyCounts = new HashMap<>();
+        Map<String, String> keyLabels = new HashMap<>();
+        for (KeyStats stats : catalog.values()) {
+            keyCounts.merge(stats.getKey().toUpperCase(), stats.getPresent(), Integer::sum);
+            keyLabels.putIfAbsent(stats.getKey().toUpperCase(), stats.getKey());
+        }
+        keyCompletions = new CompletionTrie(keyCounts, keyLabels);
+        valueCompletions = new ConcurrentHashMap<>();
+        store.columns().parallelStream().forEach(column -> {
+            CompletionTrie trie = valueCompletions(column);
+            if (trie != null) {
+                valueCompletions.put(column.getKey(), trie);
+            }
+        });
+        // Populate the string represents the keys which can be printed out
+        keyString = keys.stream().map(key -> key + '\n').collect(Collectors.joining());
+        return this;
+    }
+
+    private CompletionTrie valueCompletions(Column column) {
+        // The counts come from the hash index, so keys without one aren't completed
+        HashIndex exactIndex = exactIndexes.get(column.getKey());
+        if (exactIndex == null || exactIndex.distinctValues() > COMPLETION_VALUES) {
+            return null;
+        }
+        Map<String, Integer> counts = new HashMap<>();
+        Map<String, String> labels = new HashMap<>();
+        for (int code = 0; code < column.distinctValues(); code++) {
+            Object value = column.value(code);
+            List<?> elements = value instanceof List ? (List<?>) value : Collections.singletonList(value);
+            String[] normalisedElements = column.foldedElements(code);
+            for (int i = 0; i < normalisedElements.length; i++) {
+                if (normalisedElements[i].length() > COMPLETION_LENGTH) {
+                    return null;
+                } else if (!normalisedElements[i].isEmpty()) {
+                    counts.put(normalisedElements[i], exactIndex.count(normalisedElements[i]));
+                    // The first form seen of values differing only by case is the one completed to
+                    labels.putIfAbsent(normalisedElements[i], String.valueOf(elements.get(i)));
+                }
+            }
+        }
+        return new CompletionTrie(counts, labels);
+    }
+
+    void readFrom(ByteBuffer in) throws IOException {
+        store.readFrom(in);
+        for (int i = in.getInt(); i > 0; i--) {
+            String key = SnapshotIO.readString(in);
+            HashIndex exactIndex = new HashIndex();
+            exactIndex.readFrom(in);
+            exactIndexes.put(key, exactIndex);
+            if (in.get() != 0) {
+                TrigramIndex trigramIndex = new TrigramIndex();
+                trigramIndex.readFrom(in);
+                trigramIndexes.put(key, trigramIndex);
+            }
+        }
+        dropSpilledIndexes();
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        store.writeTo(out);
+        out.writeInt(exactIndexes.size());
+        for (String key : exactIndexes.keySet()) {
+            SnapshotIO.writeString(out, key);
+            exactIndexes.get(key).writeTo(out);
+            TrigramIndex trigramIndex = trigramIndexes.get(key);
+            out.writeBoolean(trigramIndex != null);
+            if (trigramIndex != null) {
+                trigramIndex.writeTo(out);
+            }
+        }
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public String getKeyString() {
+        // Helper method get all the keys as a string
+        return keyString;
+    }
+
+    public Collection<KeyStats> getCatalog() {
+        return Collections.unmodifiableCollection(catalog.values());
+    }
+
+    public KeyStats getStats(String key) {
+        return catalog.get(key);
+    }
+
+    public List<String> completeKey(String prefix, int limit) {
+        // Keys starting with the prefix ignoring the case, the keys held by the most records first
+        return keyCompletions.complete(prefix.toUpperCase(), limit);
+    }
+
+    public List<String> completeValue(String key, String prefix, int limit) {
+        // Values of the key starting with the prefix ignoring the case, the values held by the most records first.
+        // Keys with too many distinct values have no completions
+        CompletionTrie trie = valueCompletions.get(key);
+        return trie == null ? List.of() : trie.complete(prefix.toUpperCase(), limit);
+    }
+
+    public boolean checkKey(String key) {
+        return keys.contains(key);
+    }
+
+    public RangeIndex.Type getRangeType(String key) {
+        // Type of the values of a key which can be searched by range, null for any other key
+        RangeIndex rangeIndex = rangeIndexes.get(key);
+        return rangeIndex == null ? null : rangeIndex.getType();
+    }
+
+    void checkQuery(Query query) throws KeyNotFoundException, InvalidQueryException {
+        for (List<Query.Condition> group : query.getGroups()) {
+            for (Query.Condition condition : group) {
+                String key = condition.getKey();
+                if (!checkKey(key)) {
+                    throw new KeyNotFoundException("Field " + key + " was not found");
+                }
+                if (!condition.getMode().isRange()) {
+                    continue;
+                }
+                RangeIndex rangeIndex = rangeIndexes.get(key);
+                if (rangeIndex == null) {
+                    throw new InvalidQueryException("Field " + key + " holds neither numbers nor timestamps");
+                }
+                try {
+                    rangeIndex.parse(condition.getValue());
+                } catch (RuntimeException e) {
+                    throw new InvalidQueryException("Expected a " + rangeIndex.getType().name().toLowerCase() +
+                            " to compare " + key + " with but found \"" + condition.getValue() + "\"");
+                }
+            }
+        }
+    }
+
+    public int size() {
+        return store.size();
+    }
+
+    public Object getValue(int ordinal, String key) {
+        Column column = store.column(key);
+        int code = column == null ? Column.MISSING : column.code(ordinal);
+        return code == Column.MISSING ? null : column.value(code);
+    }
+
+    public JSONObject getObj(int ordinal) {
+        return store.materialise(ordinal);
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONArray getObjs(int[] ordinals) {
+        JSONArray objs = new JSONArray();
+        for (int ordinal : ordinals) {
+            objs.add(store.materialise(ordinal));
+        }
+        return objs;
+    }
+
+    public Iterable<JSONObject> iterateObjs(int[] ordinals) {
+        // Records are only turned in to Json objects one at a time as they are iterated over
+        return () -> Arrays.stream(ordinals).mapToObj(store::materialise).iterator();
+    }
+
+    SearchPage search(String key, String value, MatchMode mode, int cursor, int limit) {
+        return search(Query.where(key, value, mode), cursor, limit);
+    }
+
+    SearchPage search(Query query, int cursor, int limit) {
+        List<List<Query.Condition>> groups = query.getGroups();
+        if (groups.size() == 1) {
+            Plan plan = plan(groups.get(0), false);
+            return collect(plan.candidates, plan.matches, cursor, limit);
+        }
+        // A record matching any of the groups is a candidate of at least one of them, so the candidates of all the
+        // groups together are checked against each group in turn, unless one of the groups has to scan anyway
+        int[] candidates = PostingList.EMPTY;
+        IntPredicate matches = ordinal -> false;
+        for (List<Query.Condition> group : groups) {
+            Plan plan = plan(group, true);
+            candidates = candidates == null || plan.candidates == null ?
+                    null : PostingList.union(candidates, plan.candidates);
+            matches = matches.or(plan.matches);
+        }
+        return collect(candidates, matches, cursor, limit);
+    }
+
+    private Plan plan(List<Query.Condition> group, boolean checkAll) {
+        // Start from the most selective step so the candidates shrink as quickly as possible, then either intersect
+        // them with the posting lists of the following steps or check the candidates one by one when the posting
+        // list is much longer than the candidates. Only a group without any indexed step is scanned
+        List<Step> steps = steps(group);
+        steps.sort(Comparator.comparingInt(Step::estimate));
+        int[] candidates = null;
+        IntPredicate matches = ordinal -> true;
+        for (Step step : steps) {
+            boolean intersect = step.isIndexed() &&
+                    (candidates == null || step.estimate() <= (long) candidates.length * INTERSECT_FACTOR);
+            if (intersect) {
+                int[] postings = step.postings();
+                candidates = candidates == null ? postings : PostingList.intersect(candidates, postings);
+            }
+            // Exact matches taken from an index don't need to be checked again
+            if (!intersect || !step.isExact() || checkAll) {
+                matches = matches.and(step.matcher(candidates == null ? store.size() : candidates.length));
+            }
+        }
+        return new Plan(candidates, matches);
+    }
+
+    private List<Step> steps(List<Query.Condition> group) {
+        // Range conditions on the same key are merged in to one step so the range index is looked up once
+        List<Step> steps = new ArrayList<>();
+        Map<String, RangeStep> ranges = new LinkedHashMap<>();
+        for (Query.Condition condition : group) {
+            if (condition.getMode().isRange()) {
+                ranges.computeIfAbsent(condition.getKey(), RangeStep::new).narrow(condition);
+            } else {
+                steps.add(new ConditionStep(condition));
+            }
+        }
+        steps.addAll(ranges.values());
+        return steps;
+    }
+
+    /*
+     * Part of a group of conditions the planner orders, served from an index when it has one.
+     */
+    private interface Step {
+        boolean isIndexed();
+
+        // Number of records the index narrows the step down to, every record if it can't
+        int estimate();
+
+        int[] postings();
+
+        // Checks a record, given the number of records expected to be checked
+        IntPredicate matcher(int checks);
+
+        // Whether the posting list holds exactly the matching records
+        boolean isExact();
+    }
+
+    private class ConditionStep implements Step {
+        private final Query.Condition condition;
+        private final String normalisedValue;
+        // Values of an any or all set
+        private final String[] normalisedElements;
+
+        private ConditionStep(Query.Condition condition) {
+            this.condition = condition;
+            normalisedValue = condition.getValue().toUpperCase();
+            normalisedElements = condition.getElements().stream().map(String::toUpperCase).toArray(String[]::new);
+        }
+
+        @Override
+        public boolean isIndexed() {
+            if (normalisedValue.isEmpty()) {
+                return false;
+            } else if (condition.getMode() == MatchMode.EXACT || condition.getMode().isSet() || prefixTrie() != null) {
+                // Keys held in segments are looked up by the hash of their values
+                return true;
+            }
+            return isIndexable(condition.getKey()) && TrigramIndex.canServe(normalisedValue);
+        }
+
+        @Override
+        public int estimate() {
+            if (!isIndexed()) {
+                return store.size();
+            }
+            switch (condition.getMode()) {
+                case EXACT:
+                    return counts().applyAsInt(normalisedValue);
+                case ANY:
+                    // Records holding several of the values are counted more than once
+                    return (int) Math.min(store.size(),
+                            Arrays.stream(normalisedElements).mapToLong(counts()::applyAsInt).sum());
+                case ALL:
+                    return Arrays.stream(normalisedElements).mapToInt(counts()).min().orElse(0);
+                default:
+                    if (prefixTrie() != null) {
+                        return (int) Math.min(store.size(), prefixTrie().count(normalisedValue));
+                    }
+                    return trigramIndex(condition.getKey()).estimate(normalisedValue);
+            }
+        }
+
+        @Override
+        public int[] postings() {
+            switch (condition.getMode()) {
+                case EXACT:
+                    return lookups().apply(normalisedValue);
+                case ANY:
+                    return Arrays.stream(normalisedElements).map(lookups())
+                            .reduce(PostingList.EMPTY, PostingList::union);
+                case ALL:
+                    // Start from the rarest value so the intermediate results stay small
+                    return Arrays.stream(normalisedElements).map(lookups())
+                            .sorted(Comparator.comparingInt(postings -> postings.length))
+                            .reduce(PostingList::intersect).orElse(PostingList.EMPTY);
+                default:
+                    // The values starting with the prefix are read off the trie and looked up one by one
+                    if (prefixTrie() != null) {
+                        return Arrays.stream(prefixTrie().terms(normalisedValue)).map(lookups())
+                                .reduce(PostingList.EMPTY, PostingList::union);
+                    }
+                    return trigramIndex(condition.getKey()).candidates(normalisedValue);
+            }
+        }
+
+        private ToIntFunction<String> counts() {
+            // Records holding a whole value, from the hash of the value for keys held in segments
+            if (isIndexable(condition.getKey())) {
+                return exactIndex(condition.getKey())::count;
+            }
+            return fingerprintIndex(condition.getKey())::estimate;
+        }
+
+        private Function<String, int[]> lookups() {
+            if (isIndexable(condition.getKey())) {
+                return exactIndex(condition.getKey())::lookup;
+            }
+            return fingerprintIndex(condition.getKey())::candidates;
+        }
+
+        @Override
+        public IntPredicate matcher(int checks) {
+            Column column = store.column(condition.getKey());
+            // Assuming partial keyword searches provides a better user experience over exact value search
+            // most of the time. However the tradeoff is sometimes you will get too many matching results back
+            // Search using empty value
+            if (normalisedValue.isEmpty()) {
+                // Filter based on any objects with non existent keys, keys with empty values or empty arrays
+                return ordinal -> column.code(ordinal) == Column.MISSING ||
+                        column.folded(column.code(ordinal)).isEmpty() ||
+                        column.foldedElements(column.code(ordinal)).length == 0;
+            }
+            switch (condition.getMode()) {
+                case ANY:
+                    return elementMatcher(column, checks, elements ->
+                            Arrays.stream(normalisedElements).anyMatch(wanted -> contains(elements, wanted)));
+                case ALL:
+                    return elementMatcher(column, checks, elements ->
+                            Arrays.stream(normalisedElements).allMatch(wanted -> contains(elements, wanted)));
+                default:
+                    // The search value is compiled once and matched against each element without allocating
+                    ValueMatcher valueMatcher = ValueMatcher.compile(condition.getMode(), normalisedValue);
+                    return elementMatcher(column, checks, elements -> {
+                        for (String element : elements) {
+                            if (valueMatcher.matches(element)) {
+                                return true;
+                            }
+                        }
+                        return false;
+                    });
+            }
+        }
+
+        @Override
+        public boolean isExact() {
+            // Postings of the hash index are exactly the matching records, trigram candidates and records sharing the
+            // hash of a value held in segments still have to be checked
+            return (condition.getMode() == MatchMode.EXACT || condition.getMode().isSet()) &&
+                    isIndexable(condition.getKey()) || prefixTrie() != null;
+        }
+
+        private CompletionTrie prefixTrie() {
+            // Trie of the values of the key when the condition asks for values starting with a prefix, any length of
+            // prefix is served from it, not only those long enough for trigrams
+            return condition.getMode() == MatchMode.PREFIX ? valueCompletions.get(condition.getKey()) : null;
+        }
+    }
+
+    private static IntPredicate elementMatcher(Column column, int checks, Predicate<String[]> matches) {
+        if (checks < column.distinctValues()) {
+            // Fewer records to check than distinct values, check the records themselves
+            return ordinal -> column.code(ordinal) != Column.MISSING &&
+                    matches.test(column.foldedElements(column.code(ordinal)));
+        }
+        // Filer any objects which contain the key and match the given value ignoring the case, the check is done
+        // once per distinct value and the records are matched on their value codes. Values held in segments are
+        // read back from the mapped files and packed text turned back in to strings, which is spread over the
+        // processors
+        boolean[] matchingCodes = new boolean[column.distinctValues()];
+        IntStream codes = IntStream.range(0, matchingCodes.length);
+        (column.isDeduplicated() ? codes : codes.parallel())
+                .forEach(code -> matchingCodes[code] = matches.test(column.foldedElements(code)));
+        return ordinal -> column.code(ordinal) != Column.MISSING && matchingCodes[column.code(ordinal)];
+    }
+
+    private static boolean contains(String[] elements, String normalisedValue) {
+        for (String element : elements) {
+            if (element.equals(normalisedValue)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private class RangeStep implements Step {
+        private final String key;
+        // Null when the key holds neither numbers nor timestamps, then nothing matches
+        private final RangeIndex index;
+        // Both bounds are included
+        private long from = Long.MIN_VALUE;
+        private long to = Long.MAX_VALUE;
+
+        private RangeStep(String key) {
+            this.key = key;
+            index = rangeIndexes.get(key);
+        }
+
+        private void narrow(Query.Condition condition) {
+            // Queries are checked before they are searched, a bound of the wrong type is taken as matching nothing
+            long bound;
+            try {
+                bound = index == null ? 0 : index.parse(condition.getValue());
+            } catch (RuntimeException e) {
+                from = Long.MAX_VALUE;
+                to = Long.MIN_VALUE;
+                return;
+            }
+            switch (condition.getMode()) {
+                case GREATER_THAN:
+                    from = bound == Long.MAX_VALUE ? bound : Math.max(from, bound + 1);
+                    to = bound == Long.MAX_VALUE ? Long.MIN_VALUE : to;
+                    break;
+                case AT_LEAST:
+                    from = Math.max(from, bound);
+                    break;
+                case LESS_THAN:
+                    to = bound == Long.MIN_VALUE ? bound : Math.min(to, bound - 1);
+                    from = bound == Long.MIN_VALUE ? Long.MAX_VALUE : from;
+                    break;
+                default:
+                    to = Math.min(to, bound);
+            }
+        }
+
+        @Override
+        public boolean isIndexed() {
+            return true;
+        }
+
+        @Override
+        public int estimate() {
+            return index == null ? 0 : index.count(from, to);
+        }
+
+        @Override
+        public int[] postings() {
+            return index == null ? PostingList.EMPTY : index.range(from, to);
+        }
+
+        @Override
+        public IntPredicate matcher(int checks) {
+            Column column = store.column(key);
+            return ordinal -> index != null && index.matches(column.code(ordinal), from, to);
+        }
+
+        @Override
+        public boolean isExact() {
+            return true;
+        }
+    }
+
+    private SearchPage collect(int[] candidates, IntPredicate matches, int cursor, int limit) {
+        // Records worth looking at if an index narrowed them down, null when every record has to be scanned
+        return limit == GenericParser.UNLIMITED ?
+                collectAll(candidates, matches, cursor) : collectPage(candidates, matches, cursor, limit);
+    }
+
+    private SearchPage collectAll(int[] candidates, IntPredicate matches, int cursor) {
+        // Every match is needed so the records can be checked in parallel
+        if (candidates == null) {
+            int[] ordinals = IntStream.range(cursor, store.size()).parallel().filter(matches).toArray();
+            return new SearchPage(this, ordinals, SearchPage.END, Math.max(0, store.size() - cursor));
+        }
+        int from = firstCandidate(candidates, cursor);
+        int[] ordinals = Arrays.stream(candidates, from, candidates.length).filter(matches).toArray();
+        return new SearchPage(this, ordinals, SearchPage.END, candidates.length - from);
+    }
+
+    private SearchPage collectPage(int[] candidates, IntPredicate matches, int cursor, int limit) {
+        // Scan in order and stop at the first match past the page, which is where the next page starts from
+        PostingList ordinals = new PostingList();
+        int from = candidates == null ? cursor : firstCandidate(candidates, cursor);
+        int to = candidates == null ? store.size() : candidates.length;
+        long scanned = 0;
+        for (int i = from; i < to; i++) {
+            int ordinal = candidates == null ? i : candidates[i];
+            scanned++;
+            if (matches.test(ordinal)) {
+                if (ordinals.size() == limit) {
+                    return new SearchPage(this, ordinals.toArray(), ordinal, scanned);
+                }
+                ordinals.add(ordinal);
+            }
+        }
+        return new SearchPage(this, ordinals.toArray(), SearchPage.END, scanned);
+    }
+
+    private static class Plan {
+        // Records to look at, null for all of them, and the check they have to pass
+        private final int[] candidates;
+        private final IntPredicate matches;
+
+        private Plan(int[] candidates, IntPredicate matches) {
+            this.candidates = candidates;
+            this.matches = matches;
+        }
+    }
+
+    private static int firstCandidate(int[] candidates, int cursor) {
+        // Position of the first candidate at or after the cursor
+        int position = Arrays.binarySearch(candidates, cursor);
+        return position >= 0 ? position : -position - 1;
+    }
+}
@@ -0,0 +1,81 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.exception.DataLoadException;
+
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/*
+ * Loads a data set in to a GenericParser on a background thread so several data sets can be parsed at the same time
+ * and the application can be used while they are still loading. When started lazily the data set is only parsed
+ * the first time it's asked for. When given a watcher the data set is handed over to it once loaded so it's
+ * reloaded whenever its data file changes.
+ */
+public class DatasetLoader {
+
+    private final String name;
+    private final String fileName;
+    private final Path snapshotDir;
+    private final Executor executor;
+    private final DatasetWatcher watcher;
+    private CompletableFuture<GenericParser> loading;
+
+    public DatasetLoader(String name, String fileName, Path snapshotDir, Executor executor) {
+        this(name, fileName, snapshotDir, executor, null);
+    }
+
+    public DatasetLoader(String name, String fileName, Path snapshotDir, Executor executor, DatasetWatcher watcher) {
+        this.name = name;
+        this.fileName = fileName;
+        this.snapshotDir = snapshotDir;
+        this.executor = executor;
+        this.watcher = watcher;
+    }
+
+    public synchronized void start() {
+        // Only the first call kicks off the loading, the rest are ignored
+        if (loading == null) {
+            loading = CompletableFuture.supplyAsync(() -> {
+                try {
+                    GenericParser parser = new GenericParser(fileName, snapshotDir);
+                    if (watcher != null) {
+                        watcher.watch(parser);
+                    }
+                    return parser;
+                } catch (DataLoadException e) {
+                    throw new CompletionException(e);
+                }
+            }, executor);
+        }
+    }
+
+    public GenericParser get() throws DataLoadException {
+        // Wait for the data set to finish loading, starting it if it wasn't already
+        start();
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof DataLoadException) {
+                throw (DataLoadException) e.getCause();
+            }
+            throw new DataLoadException("Unable to load " + name + " : " + e.getCause().getMessage());
+        }
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public synchronized String getStatus() {
+        if (loading == null) {
+            return "not loaded";
+        } else if (!loading.isDone()) {
+            return "loading";
+        } else if (loading.isCompletedExceptionally()) {
+            return "failed";
+        }
+        return "ready";
+    }
+}
@@ -0,0 +1,96 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.exception.DataLoadException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/*
+ * Watches the data files of the loaded data sets and reloads a data set whenever one of its files changes, or a file
+ * is added to or removed from a data set made of several files. Files are often written in several goes, so a reload
+ * only starts once the directory has been quiet for a moment. Reloads run one after the other on the watcher thread
+ * while searches carry on with the data they already have.
+ */
+public class DatasetWatcher implements Closeable {
+
+    // How long the files have to stay unchanged before they are reloaded
+    private static final long SETTLE_MILLIS = 500;
+
+    private final WatchService watchService;
+    private final Set<GenericParser> parsers = ConcurrentHashMap.newKeySet();
+    private final Thread thread;
+
+    public DatasetWatcher() throws IOException {
+        watchService = FileSystems.getDefault().newWatchService();
+        thread = new Thread(this::watchFiles, "dataset-watcher");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    public void watch(GenericParser parser) {
+        Path directory = parser.getSourceDirectory();
+        if (directory == null) {
+            // Data from the class path can't change
+            return;
+        }
+        try {
+            parsers.add(parser);
+            // Watch the directory rather than the files so files replaced by a rename are noticed as well
+            directory.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+        } catch (IOException e) {
+            parsers.remove(parser);
+            System.err.println("Unable to watch " + directory + " for changes : " + e.getMessage());
+        }
+    }
+
+    private void watchFiles() {
+        try {
+            while (true) {
+                WatchKey key = watchService.take();
+                Set<GenericParser> changed = new LinkedHashSet<>();
+                do {
+                    Path directory = (Path) key.watchable();
+                    for (WatchEvent<?> event : key.pollEvents()) {
+                        if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                            // Some changes were lost, check every data set
+                            changed.addAll(parsers);
+                            continue;
+                        }
+                        Path file = directory.resolve((Path) event.context());
+                        parsers.stream().filter(parser -> parser.isSourceFile(file)).forEach(changed::add);
+                    }
+                    key.reset();
+                } while ((key = watchService.poll(SETTLE_MILLIS, TimeUnit.MILLISECONDS)) != null);
+                changed.forEach(this::reload);
+            }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // The watcher has been closed
+        }
+    }
+
+    private void reload(GenericParser parser) {
+        try {
+            parser.reload();
+        } catch (DataLoadException e) {
+            System.err.println(e.getMessage());
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        watchService.close();
+        thread.interrupt();
+    }
+}
@@ -1,19 +1,26 @@
 package com.dts.discover.jsearch.parser;
 
+import com.dts.discover.jsearch.config.AppConfig;
 import com.dts.discover.jsearch.exception.DataLoadException;
 import com.dts.discover.jsearch.exception.DataNotFoundException;
+import com.dts.discover.jsearch.exception.InvalidQueryException;
 import com.dts.discover.jsearch.exception.KeyNotFoundException;
+import com.dts.discover.jsearch.store.SegmentStore;
+import com.dts.discover.jsearch.stats.Metrics;
 import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.parser.JSONParser;
 import org.json.simple.parser.ParseException;
 
-import java.io.InputStreamReader;
-import java.nio.charset.StandardCharsets;
-import java.util.Set;
-import java.util.TreeSet;
-
-import static java.util.stream.Collectors.toCollection;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.function.Supplier;
 
 /*
  * This is the heart of this search application. Does the most resource intensive tasks here and the design thinking
@@ -28,31 +35,53 @@ import static java.util.stream.Collectors.toCollection;
  * anymore. Event hough there is a new version of the lib which is a fork from the original Google's code I've decided
  * not to use it as this version is simpler to use and good fit for my design. Also one other assumption is this will
  * be fed with properly constructed jason data otherwise it will fail to load.
+ *
+ * The parsed records and their indexes are held in a Dataset which is replaced as a whole when the data file is
+ * reloaded. Searches always run against the Dataset which was current when they started and are never blocked by
+ * a reload.
  */
 public class GenericParser {
 
-    private final JSONArray searchObjects;
-    private final Set<String> keys;
-    private String keyString;
+    public static final int UNLIMITED = Integer.MAX_VALUE;
+
+    private final String fileName;
+    private final DataSource source;
+    private final Path snapshotDir;
+    private final Metrics metrics;
+    private final QueryCache cache;
+    // Current version of the data, swapped in one go once the next version is completely built
+    private volatile Dataset dataset;
+    // Where the records of the data file ended when it was last read, null if it's not a file on the file system
+    private SourceMark sourceMark;
 
-    @SuppressWarnings("unchecked")
     public GenericParser(String fileName) throws DataLoadException {
-        // Using the lib Simple Json parser to parse data
-        JSONParser parser = new JSONParser();
+        this(fileName, null);
+    }
+
+    public GenericParser(String fileName, Path snapshotDir) throws DataLoadException {
+        long start = System.nanoTime();
+        this.fileName = fileName;
+        source = new DataSource(fileName);
+        this.snapshotDir = snapshotDir;
+        metrics = new Metrics(fileName);
+        cache = new QueryCache(AppConfig.CACHE_ENTRIES, AppConfig.CACHE_MEGABYTES * 1024L * 1024L, metrics);
         try {
-            var file = new InputStreamReader(getClass().getClassLoader().getResourceAsStream(fileName),
-                    StandardCharsets.ISO_8859_1);
-            // Parse the data into JSONArray
-            searchObjects = (JSONArray) parser.parse(file);
-            // Using a TreeSet so the keys are sorted
-            keys = new TreeSet<String>();
-            // Capture the superset of keys
-            searchObjects.parallelStream().forEach(item -> {
-                keys.addAll(((JSONObject) item).keySet());
-            });
-            // Populate the string represents the keys which can be printed out
-            keyString = "";
-            keys.stream().forEach(key -> keyString += key + '\n');
+            // Use the snapshot from a previous run when the source file hasn't changed since
+            SnapshotFile snapshot =
+                    snapshotDir == null ? null : new SnapshotFile(snapshotDir, fileName, source.open());
+            Dataset loaded = snapshot == null ? null : readSnapshot(snapshot);
+            boolean fromSnapshot = loaded != null;
+            if (!fromSnapshot) {
+                loaded = parse(newDataset(0));
+            }
+            // Sealed before the snapshot is written so it holds the indexes built on sealing
+            dataset = loaded.seal();
+            if (!fromSnapshot && snapshot != null) {
+                snapshot.write(loaded::writeTo);
+            }
+            sourceMark = getSourcePath() == null ? null : SourceMark.of(getSourcePath());
+            metrics.record(fromSnapshot ? "load from snapshot" : "load from source", start);
+            metrics.count("records", dataset.size());
         } catch (ParseException e) {
             // Couldn't parse the data most likely not a Json file
             throw new DataLoadException("Unable to load the specified data due to invalid file format");
@@ -63,44 +92,243 @@ public class GenericParser {
         }
     }
 
+    private Dataset parse(Dataset target) throws IOException, ParseException {
+        // Data files on the file system are split up and parsed in parallel, a resource in the class path is streamed
+        // through in one go and so are the files when there is only one processor to parse them
+        List<Path> files = source.files();
+        if (files.isEmpty()) {
+            return ChunkedLoader.parse(target, source.open());
+        } else if (Runtime.getRuntime().availableProcessors() > 1) {
+            return new ChunkedLoader(AppConfig.CHUNK_MEGABYTES * 1024L * 1024L).load(target, files);
+        }
+        for (Path file : files) {
+            ChunkedLoader.parse(target, Files.newInputStream(file));
+        }
+        return target;
+    }
+
+    private static Dataset newDataset(long version) throws IOException {
+        // Each full load writes to segments of its own, appended records go to the segments of the previous version
+        return AppConfig.SEGMENT_DIR.isEmpty() ? new Dataset(version) : new Dataset(version,
+                SegmentStore.create(Path.of(AppConfig.SEGMENT_DIR), AppConfig.SEGMENT_THRESHOLD));
+    }
+
+    private Dataset readSnapshot(SnapshotFile snapshot) {
+        ByteBuffer in = snapshot.open();
+        if (in == null) {
+            return null;
+        }
+        Dataset restored = null;
+        try {
+            restored = newDataset(0);
+            restored.readFrom(in);
+            return restored;
+        } catch (IOException | RuntimeException e) {
+            // Corrupted snapshot, discard what was read and parse the source instead
+            System.err.println("Ignoring the snapshot of the data set : " + e.getMessage());
+            if (restored != null) {
+                restored.deleteSegments();
+            }
+            return null;
+        }
+    }
+
+    public synchronized boolean reload() throws DataLoadException {
+        // Bring the data up to date with the data file, false if there was nothing new to load
+        if (source.getDirectory() == null) {
+            // Resources in the class path never change
+            return false;
+        }
+        Path path = getSourcePath();
+        long start = System.nanoTime();
+        Dataset current = dataset;
+        try {
+            Dataset next = sourceMark != null && path != null && sourceMark.isPrefixOf(path) ?
+                    appendedRecords(path, current) : null;
+            if (next == current) {
+                return false;
+            }
+            boolean appended = next != null;
+            if (!appended) {
+                next = parse(newDataset(current.getVersion() + 1));
+            }
+            next.seal();
+            if (snapshotDir != null) {
+                new SnapshotFile(snapshotDir, fileName, source.open()).write(next::writeTo);
+            }
+            sourceMark = path == null ? null : SourceMark.of(path);
+            // Searches which already started carry on with the previous version, the cached pages are of no use now
+            dataset = next;
+            cache.clear();
+            if (!appended) {
+                current.deleteSegments();
+            }
+            metrics.record(appended ? "reload appended" : "reload", start);
+            metrics.count("records", next.size() - current.size());
+            return true;
+        } catch (ParseException e) {
+            // The file may still be being written, keep the current data until the next change
+            throw new DataLoadException("Unable to reload " + fileName + " due to invalid file format");
+        } catch (IOException e) {
+            throw new DataLoadException("Unable to reload " + fileName + " : " + e.getMessage());
+        }
+    }
+
+    private Dataset appendedRecords(Path path, Dataset current) throws IOException, ParseException {
+        // The file is unchanged up to the end of the last record, so only parse and index what comes after it
+        try (InputStream tail = sourceMark.openTail(path)) {
+            int next = tail.read();
+            while (next != -1 && Character.isWhitespace(next)) {
+                next = tail.read();
+            }
+            if (next == ']') {
+                return current;
+            } else if (next != ',') {
+                return null;
+            }
+            // With the comma swapped for an opening bracket the new records read as an array of their own
+            Dataset appended = new Dataset(current, current.getVersion() + 1);
+            InputStream records = new SequenceInputStream(new ByteArrayInputStream(new byte[]{'['}), tail);
+            return ChunkedLoader.parse(appended, records);
+        }
+    }
+
+    public Path getSourcePath() {
+        // The data file on the file system, null when the data comes from several files or the class path
+        return source.getFile();
+    }
+
+    public Path getSourceDirectory() {
+        // Directory holding the data files, null when the data comes from the class path
+        return source.getDirectory();
+    }
+
+    public boolean isSourceFile(Path file) {
+        return source.isSourceFile(file);
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
     public String getKeyString() {
-        // Helper method get all the keys as a string
-        return keyString;
+        return dataset.getKeyString();
+    }
+
+    public Collection<KeyStats> getCatalog() {
+        return dataset.getCatalog();
     }
 
     public boolean checkKey(String key) {
-        return keys.contains(key);
+        return dataset.checkKey(key);
+    }
+
+    public List<String> completeKey(String prefix, int limit) {
+        return dataset.completeKey(prefix, limit);
+    }
+
+    public List<String> completeValue(String key, String prefix, int limit) {
+        return dataset.completeValue(key, prefix, limit);
+    }
+
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    public int size() {
+        return dataset.size();
+    }
+
+    public Object getValue(int ordinal, String key) {
+        return dataset.getValue(ordinal, key);
+    }
+
+    public JSONObject getObj(int ordinal) {
+        return dataset.getObj(ordinal);
+    }
+
+    public JSONArray getObjs(int[] ordinals) {
+        return dataset.getObjs(ordinals);
+    }
+
+    public Iterable<JSONObject> iterateObjs(int[] ordinals) {
+        return dataset.iterateObjs(ordinals);
     }
 
-    @SuppressWarnings("unchecked")
     public JSONArray getMatchingObj(String key, String value) throws KeyNotFoundException, DataNotFoundException {
-        if (!keys.contains(key)) {
+        return getMatchingObj(key, value, MatchMode.CONTAINS);
+    }
+
+    public JSONArray getMatchingObj(String key, String value, MatchMode mode)
+            throws KeyNotFoundException, DataNotFoundException {
+        SearchPage page = search(key, value, mode, 0, UNLIMITED);
+        return page.getDataset().getObjs(page.getOrdinals());
+    }
+
+    public int[] getMatchingOrdinals(String key, String value, MatchMode mode)
+            throws KeyNotFoundException, DataNotFoundException {
+        return search(key, value, mode, 0, UNLIMITED).getOrdinals();
+    }
+
+    public SearchPage search(String key, String value, MatchMode mode, int cursor, int limit)
+            throws KeyNotFoundException, DataNotFoundException {
+        return search(dataset, key, value, mode, cursor, limit);
+    }
+
+    public SearchPage search(Dataset searched, String key, String value, MatchMode mode, int cursor, int limit)
+            throws KeyNotFoundException, DataNotFoundException {
+        // Following pages of a search are asked for on the same version of the data as the first page
+        if (!searched.checkKey(key)) {
             // Using an invalid key to search data throw exception
             throw new KeyNotFoundException("Field " + key + " was not found");
         }
-        JSONArray retList;
-        // Assuming partial keyword searches provides a better user experience over exact value search
-        // most of the time. However the tradeoff is sometimes you will get too many matching results back
-        // Search using empty value
-        if (value.isEmpty()) {
-            // Filter based on any objects with non existent keys or keys with empty values
-            retList = (JSONArray) searchObjects.parallelStream().
-                    filter(searchObject -> !((JSONObject) searchObject).containsKey(key) ||
-                            ((JSONObject) searchObject).get(key).toString().isEmpty()).
-                    collect(toCollection(JSONArray::new));
-        } else {
-            // Filer any objects which contain the key and contain the given value ignoring the case
-            retList = (JSONArray) searchObjects.parallelStream().
-                    filter(searchObject -> ((JSONObject) searchObject).containsKey(key) &&
-                            ((JSONObject) searchObject).get(key).toString().toUpperCase().contains(value.toUpperCase())).
-                    collect(toCollection(JSONArray::new));
-        }
-        if (retList.isEmpty()) {
+        long start = System.nanoTime();
+        String normalisedValue = value.toUpperCase();
+        String modeName = value.isEmpty() ? "empty" : mode.name().toLowerCase();
+        QueryCache.Key cacheKey =
+                new QueryCache.Key(searched.getVersion(), key, normalisedValue, modeName, cursor, limit);
+        SearchPage page = cached(searched, cacheKey, () -> searched.search(key, value, mode, cursor, limit));
+        metrics.record("search " + key + " " + modeName, start);
+        if (page.getOrdinals().length == 0) {
             // No matching data found throw an exception
             throw new DataNotFoundException("No data found for field : \"" + key +
                     "\" with provided value \"" + (value.isEmpty() ? "[]" : value) + "\"");
         }
-        return retList;
+        return page;
+    }
+
+    public SearchPage search(Query query, int cursor, int limit)
+            throws KeyNotFoundException, InvalidQueryException, DataNotFoundException {
+        return search(dataset, query, cursor, limit);
+    }
+
+    public SearchPage search(Dataset searched, Query query, int cursor, int limit)
+            throws KeyNotFoundException, InvalidQueryException, DataNotFoundException {
+        searched.checkQuery(query);
+        long start = System.nanoTime();
+        // Queries relative to the current time give different answers as time goes by so they aren't cached
+        QueryCache.Key cacheKey = query.isRelativeToNow() ? null :
+                new QueryCache.Key(searched.getVersion(), query, cursor, limit);
+        SearchPage page = cached(searched, cacheKey, () -> searched.search(query, cursor, limit));
+        metrics.record("search query", start);
+        if (page.getOrdinals().length == 0) {
+            throw new DataNotFoundException("No data found for query : " + query);
+        }
+        return page;
     }
 
-}
\ No newline at end of file
+    private SearchPage cached(Dataset searched, QueryCache.Key cacheKey, Supplier<SearchPage> search) {
+        // Repeated searches are answered from the cache, searches without a cache key are always run
+        SearchPage page = cacheKey == null ? null : cache.get(cacheKey);
+        if (page == null) {
+            page = search.get();
+            metrics.count("records scanned", page.getScanned());
+            if (cacheKey != null && searched == dataset) {
+                cache.put(cacheKey, page);
+            }
+        }
+        metrics.count("queries", 1);
+        metrics.count("records matched", page.getOrdinals().length);
+        return page;
+    }
+}
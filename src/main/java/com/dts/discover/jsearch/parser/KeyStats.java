@@ -0,0 +1,152 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.stats.DistinctSketch;
+import com.dts.discover.jsearch.store.Column;
+import org.json.simple.JSONObject;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/*
+ * Schema and statistics of a single key of a data set, the type of its values, how many records hold it and how
+ * many distinct values it has. Worked out once when the data set is sealed, the distinct counts come straight from
+ * the dictionary of the column and the hash index so they are exact. Keys held in segments, long text and near unique
+ * keys no longer tell their values apart, their distinct counts are estimated while their values are gone through and
+ * flagged as such.
+ */
+public class KeyStats {
+
+    private final String key;
+    private final String type;
+    // Records holding the key, those holding a null and those holding an empty string or array
+    private final int present;
+    private final int nulls;
+    private final int empty;
+    // Distinct values of the key and distinct elements of its arrays, the same for keys without arrays
+    private final int distinctValues;
+    private final int distinctElements;
+    private final boolean estimated;
+
+    private KeyStats(String key, String type, int present, int nulls, int empty, int distinctValues,
+                     int distinctElements, boolean estimated) {
+        this.key = key;
+        this.type = type;
+        this.present = present;
+        this.nulls = nulls;
+        this.empty = empty;
+        this.distinctValues = distinctValues;
+        this.distinctElements = distinctElements;
+        this.estimated = estimated;
+    }
+
+    static KeyStats of(Column column, int records, boolean timestamps, int distinctElements) {
+        // Classify each distinct value once, then count the records by the class of their value code. The distinct
+        // elements are passed in unless equal values of the column may have codes of their own, as in segments or
+        // packed text, then both counts are estimated
+        Set<String> types = new TreeSet<>();
+        DistinctSketch values = column.isDeduplicated() ? null : new DistinctSketch();
+        DistinctSketch elements = column.isDeduplicated() ? null : new DistinctSketch();
+        boolean[] nullCodes = new boolean[column.distinctValues()];
+        boolean[] emptyCodes = new boolean[column.distinctValues()];
+        for (int code = 0; code < nullCodes.length; code++) {
+            Object value = column.value(code);
+            nullCodes[code] = value == null;
+            // Judged on the value itself so columns which are never searched don't have to be folded
+            emptyCodes[code] = value != null &&
+                    (value.toString().isEmpty() || value instanceof List && ((List<?>) value).isEmpty());
+            if (value != null) {
+                types.add(typeOf(value));
+            }
+            if (values != null) {
+                values.add(String.valueOf(value));
+                List<?> list = value instanceof List ? (List<?>) value : Collections.singletonList(value);
+                list.forEach(element -> elements.add(Column.fold(element)));
+            }
+        }
+        int present = 0;
+        int nulls = 0;
+        int empty = 0;
+        for (int ordinal = 0; ordinal < records; ordinal++) {
+            int code = column.code(ordinal);
+            if (code != Column.MISSING) {
+                present++;
+                nulls += nullCodes[code] ? 1 : 0;
+                empty += emptyCodes[code] ? 1 : 0;
+            }
+        }
+        String type = timestamps ? "timestamp" : types.isEmpty() ? "null" :
+                types.size() == 1 ? types.iterator().next() :
+                types.equals(Set.of("decimal", "number")) ? "decimal" : "mixed";
+        if (values != null) {
+            return new KeyStats(column.getKey(), type, present, nulls, empty, (int) values.estimate(),
+                    (int) elements.estimate(), true);
+        }
+        return new KeyStats(column.getKey(), type, present, nulls, empty, column.distinctValues(), distinctElements,
+                false);
+    }
+
+    private static String typeOf(Object value) {
+        if (value instanceof Long) {
+            return "number";
+        } else if (value instanceof Number) {
+            return "decimal";
+        } else if (value instanceof Boolean) {
+            return "boolean";
+        } else if (value instanceof List) {
+            return "array";
+        } else if (value instanceof Map) {
+            return "object";
+        }
+        return "string";
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    public int getPresent() {
+        return present;
+    }
+
+    public int getNulls() {
+        return nulls;
+    }
+
+    public int getEmpty() {
+        return empty;
+    }
+
+    public int getDistinctValues() {
+        return distinctValues;
+    }
+
+    public int getDistinctElements() {
+        return distinctElements;
+    }
+
+    public boolean isEstimated() {
+        // Whether the distinct counts are estimates rather than exact
+        return estimated;
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSON() {
+        JSONObject stats = new JSONObject();
+        stats.put("key", key);
+        stats.put("type", type);
+        stats.put("present", present);
+        stats.put("nulls", nulls);
+        stats.put("empty", empty);
+        stats.put("distinct_values", distinctValues);
+        stats.put("distinct_elements", distinctElements);
+        stats.put("distinct_estimated", estimated);
+        return stats;
+    }
+}
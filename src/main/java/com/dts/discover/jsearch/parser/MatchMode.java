@@ -0,0 +1,43 @@
+package com.dts.discover.jsearch.parser;
+
+/*
+ * Enumeration of the supported ways of comparing a search value against the stored field values along with the
+ * operator used for them in a query. All the modes ignore the case of the values, the range modes only apply to
+ * keys holding numbers or timestamps. Array values are matched element by element, so an exact match on tags is a
+ * record with that tag, and any other value is taken as an array holding only itself.
+ */
+public enum MatchMode {
+    // Field value contains the search value anywhere, this is the default behaviour of the search
+    CONTAINS("~"),
+    // Field value starts or ends with the search value, candidates are narrowed down by the trigram index
+    PREFIX("^="),
+    SUFFIX("$="),
+    // Field value is exactly the search value, served from the per key hash index
+    EXACT("="),
+    // Field value is exactly any or all of the search values separated by commas, served from the per key hash index
+    ANY("=any"),
+    ALL("=all"),
+    // Field value is above, at least, below or at most the search value, served from the per key range index
+    GREATER_THAN(">"),
+    AT_LEAST(">="),
+    LESS_THAN("<"),
+    AT_MOST("<=");
+
+    private final String operator;
+
+    MatchMode(String operator) {
+        this.operator = operator;
+    }
+
+    public String getOperator() {
+        return operator;
+    }
+
+    public boolean isRange() {
+        return this == GREATER_THAN || this == AT_LEAST || this == LESS_THAN || this == AT_MOST;
+    }
+
+    public boolean isSet() {
+        return this == ANY || this == ALL;
+    }
+}
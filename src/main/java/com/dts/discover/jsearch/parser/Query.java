@@ -0,0 +1,257 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.exception.InvalidQueryException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/*
+ * Search made of several conditions combined with AND and OR, AND binding tighter than OR so the query is a list of
+ * groups and a record matches when it matches every condition of any of the groups. Queries are either put together
+ * in code
+ *
+ *   Query.where("status", "open", MatchMode.EXACT).and("priority", "high", MatchMode.EXACT)
+ *
+ * or parsed from text where key=value is an exact match, key~value a partial match, key^=value and key$=value match
+ * the start and the end of the value and a value of [] matches records without one, values holding spaces are put in
+ * double quotes. Keys holding numbers or timestamps can also be compared with >, >=, < and <=, several of them on
+ * the same key make up a range
+ *
+ *   status=open and priority=high or subject~"a drama"
+ *   created_at>=2016-04-01 and created_at<2016-05-01 and due_at<now
+ *
+ * Values are matched against each element of an array on its own, and key=any(a,b) or key=all(a,b) matches records
+ * holding any or all of the values, such as tags=all(ohio,"new york")
+ */
+public class Query {
+
+    private final List<List<Condition>> groups = new ArrayList<>();
+
+    private Query() {
+    }
+
+    public static Query where(String key, String value, MatchMode mode) {
+        Query query = new Query();
+        return query.or(key, value, mode);
+    }
+
+    public Query and(String key, String value, MatchMode mode) {
+        groups.get(groups.size() - 1).add(new Condition(key, value, mode));
+        return this;
+    }
+
+    public Query or(String key, String value, MatchMode mode) {
+        groups.add(new ArrayList<>());
+        return and(key, value, mode);
+    }
+
+    public static boolean isQuery(String text) {
+        // Keys never hold these so anything with them is taken as a query rather than a key
+        return firstSeparator(text) >= 0;
+    }
+
+    public static Query parse(String text) throws InvalidQueryException {
+        Query query = null;
+        boolean expectCondition = true;
+        String operator = "or";
+        for (String token : tokens(text)) {
+            if (!expectCondition) {
+                operator = token.toLowerCase();
+                if (!operator.equals("and") && !operator.equals("or")) {
+                    throw new InvalidQueryException("Expected and or or but found " + token);
+                }
+                expectCondition = true;
+                continue;
+            }
+            int separator = firstSeparator(token);
+            if (separator <= 0) {
+                throw new InvalidQueryException("Expected key=value, key~value or key>value but found " + token);
+            }
+            String key = token.substring(0, separator);
+            MatchMode mode = mode(token, separator);
+            if (mode == null) {
+                throw new InvalidQueryException("Expected = after " + token.charAt(separator) + " in " + token);
+            }
+            String value = token.substring(separator + mode.getOperator().length());
+            if (mode == MatchMode.EXACT && isSet(value)) {
+                mode = value.substring(0, 3).equalsIgnoreCase("any") ? MatchMode.ANY : MatchMode.ALL;
+                value = elements(value.substring(4, value.length() - 1));
+            } else {
+                value = unquote(value);
+            }
+            if (query == null) {
+                query = where(key, value, mode);
+            } else if (operator.equals("and")) {
+                query.and(key, value, mode);
+            } else {
+                query.or(key, value, mode);
+            }
+            expectCondition = false;
+        }
+        if (query == null || expectCondition) {
+            throw new InvalidQueryException("Incomplete query " + text);
+        }
+        return query;
+    }
+
+    private static List<String> tokens(String text) throws InvalidQueryException {
+        // Split on white spaces which are not inside double quotes
+        List<String> tokens = new ArrayList<>();
+        StringBuilder token = new StringBuilder();
+        boolean quoted = false;
+        for (char c : text.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+            }
+            if (Character.isWhitespace(c) && !quoted) {
+                if (token.length() > 0) {
+                    tokens.add(token.toString());
+                    token.setLength(0);
+                }
+            } else {
+                token.append(c);
+            }
+        }
+        if (quoted) {
+            throw new InvalidQueryException("Missing closing quote in " + text);
+        }
+        if (token.length() > 0) {
+            tokens.add(token.toString());
+        }
+        return tokens;
+    }
+
+    private static int firstSeparator(String token) {
+        for (int i = 0; i < token.length(); i++) {
+            if ("=~<>^$".indexOf(token.charAt(i)) >= 0) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private static MatchMode mode(String token, int separator) {
+        // Operator starting at the separator, the range operators can be followed by = to include the bound, null when
+        // the separator doesn't start an operator
+        boolean orEqual = separator + 1 < token.length() && token.charAt(separator + 1) == '=';
+        switch (token.charAt(separator)) {
+            case '=':
+                return MatchMode.EXACT;
+            case '~':
+                return MatchMode.CONTAINS;
+            case '>':
+                return orEqual ? MatchMode.AT_LEAST : MatchMode.GREATER_THAN;
+            case '^':
+                return orEqual ? MatchMode.PREFIX : null;
+            case '$':
+                return orEqual ? MatchMode.SUFFIX : null;
+            default:
+                return orEqual ? MatchMode.AT_MOST : MatchMode.LESS_THAN;
+        }
+    }
+
+    private static boolean isSet(String value) {
+        String prefix = value.length() > 5 ? value.substring(0, 4).toLowerCase() : "";
+        return (prefix.equals("any(") || prefix.equals("all(")) && value.endsWith(")");
+    }
+
+    private static String elements(String list) throws InvalidQueryException {
+        // Values of a set are kept separated by commas, so a value can't hold a comma itself
+        List<String> elements = new ArrayList<>();
+        for (String element : list.split(",")) {
+            String value = unquote(element.trim());
+            if (value.isEmpty() || value.indexOf('"') >= 0) {
+                throw new InvalidQueryException("Expected a list of values separated by commas but found " + list);
+            }
+            elements.add(value);
+        }
+        return String.join(",", elements);
+    }
+
+    private static String unquote(String value) {
+        if (value.equals("[]")) {
+            return "";
+        }
+        return value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"") ?
+                value.substring(1, value.length() - 1) : value;
+    }
+
+    public boolean isRelativeToNow() {
+        return groups.stream().flatMap(List::stream)
+                .anyMatch(condition -> condition.mode.isRange() && condition.value.trim().equalsIgnoreCase("now"));
+    }
+
+    public List<List<Condition>> getGroups() {
+        return Collections.unmodifiableList(groups);
+    }
+
+    @Override
+    public String toString() {
+        // Written the same way as it would be parsed
+        return groups.stream()
+                .map(group -> group.stream().map(Condition::toString).collect(Collectors.joining(" and ")))
+                .collect(Collectors.joining(" or "));
+    }
+
+    /*
+     * Single key and value comparison of a query.
+     */
+    public static class Condition {
+        private final String key;
+        private final String value;
+        private final MatchMode mode;
+
+        public Condition(String key, String value, MatchMode mode) {
+            this.key = key;
+            this.value = value;
+            this.mode = mode;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getValue() {
+            return value;
+        }
+
+        public MatchMode getMode() {
+            return mode;
+        }
+
+        public List<String> getElements() {
+            // Values of a set, the value itself for the other modes
+            return mode.isSet() ? List.of(value.split(",")) : List.of(value);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Condition)) {
+                return false;
+            }
+            Condition that = (Condition) other;
+            return key.equals(that.key) && value.equals(that.value) && mode == that.mode;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(key, value, mode);
+        }
+
+        @Override
+        public String toString() {
+            if (mode.isSet()) {
+                return key + mode.getOperator() + getElements().stream()
+                        .map(element -> '"' + element + '"').collect(Collectors.joining(",", "(", ")"));
+            }
+            return key + mode.getOperator() +
+                    (value.isEmpty() ? "[]" : '"' + value + '"');
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.stats.Metrics;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
+/*
+ * Least recently used cache of search result pages of a data set. Bounded both by the number of entries and by an
+ * estimate of the memory held by the cached ordinals, whichever is reached first evicts the oldest entries.
+ * Hits, misses and evictions are counted in the metrics of the data set.
+ */
+public class QueryCache {
+
+    // Rough per entry overhead of the map entry, key and page objects
+    private static final long ENTRY_OVERHEAD = 160;
+
+    private final int maxEntries;
+    private final long maxBytes;
+    private final Metrics metrics;
+    // Access ordered so the first entry is always the least recently used one
+    private final LinkedHashMap<Key, SearchPage> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes = 0;
+
+    public QueryCache(int maxEntries, long maxBytes, Metrics metrics) {
+        this.maxEntries = maxEntries;
+        this.maxBytes = maxBytes;
+        this.metrics = metrics;
+    }
+
+    public synchronized SearchPage get(Key key) {
+        SearchPage page = entries.get(key);
+        metrics.count(page == null ? "cache misses" : "cache hits", 1);
+        return page;
+    }
+
+    public synchronized void put(Key key, SearchPage page) {
+        long size = weight(page);
+        if (maxEntries <= 0 || size > maxBytes) {
+            // Caching is turned off or this page alone would take the whole cache
+            return;
+        }
+        SearchPage previous = entries.put(key, page);
+        bytes += size - (previous == null ? 0 : weight(previous));
+        Iterator<Map.Entry<Key, SearchPage>> oldest = entries.entrySet().iterator();
+        while (entries.size() > maxEntries || bytes > maxBytes) {
+            bytes -= weight(oldest.next().getValue());
+            oldest.remove();
+            metrics.count("cache evictions", 1);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    private static long weight(SearchPage page) {
+        return ENTRY_OVERHEAD + (long) page.getOrdinals().length * Integer.BYTES;
+    }
+
+    /*
+     * A search as seen by the cache, the value is the normalised (upper case) value so searches differing only in
+     * the case share the same entry. A query is kept as its conditions rather than its text, as values holding quotes
+     * or brackets could write two different queries the same way. The version of the data set keeps the pages of a
+     * reloaded data set apart.
+     */
+    public static class Key {
+        private final long version;
+        private final String key;
+        private final String normalisedValue;
+        private final String mode;
+        private final List<List<Query.Condition>> conditions;
+        private final int cursor;
+        private final int limit;
+
+        public Key(long version, String key, String normalisedValue, String mode, int cursor, int limit) {
+            this(version, key, normalisedValue, mode, List.of(), cursor, limit);
+        }
+
+        public Key(long version, Query query, int cursor, int limit) {
+            // Copied so a query added to once searched doesn't change the key
+            this(version, "", "", "query",
+                    query.getGroups().stream().map(List::copyOf).collect(Collectors.toUnmodifiableList()),
+                    cursor, limit);
+        }
+
+        private Key(long version, String key, String normalisedValue, String mode,
+                    List<List<Query.Condition>> conditions, int cursor, int limit) {
+            this.version = version;
+            this.key = key;
+            this.normalisedValue = normalisedValue;
+            this.mode = mode;
+            this.conditions = conditions;
+            this.cursor = cursor;
+            this.limit = limit;
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            if (this == other) {
+                return true;
+            }
+            if (!(other instanceof Key)) {
+                return false;
+            }
+            Key that = (Key) other;
+            return version == that.version && cursor == that.cursor && limit == that.limit && key.equals(that.key) &&
+                    normalisedValue.equals(that.normalisedValue) && mode.equals(that.mode) &&
+                    conditions.equals(that.conditions);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(version, key, normalisedValue, mode, conditions, cursor, limit);
+        }
+    }
+}
@@ -0,0 +1,116 @@
+package com.dts.discover.jsearch.parser;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.ParseException;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.function.Consumer;
+
+/*
+ * Simple-json content handler which walks the top level Json array token by token and hands over each record to the
+ * consumer as soon as it is complete. Only the record being read is held in memory, the top level array itself is
+ * never built so the whole data set doesn't have to fit in memory twice while loading.
+ *
+ * The data is expected to be an array of objects, anything else is reported as a parse error.
+ */
+public class RecordStreamHandler implements ContentHandler {
+
+    private final Consumer<JSONObject> consumer;
+    // Objects and arrays of the record being read, the innermost one is on the top
+    private final Deque<Object> containers = new ArrayDeque<>();
+    private final Deque<String> entryKeys = new ArrayDeque<>();
+    private int depth = 0;
+    private boolean started = false;
+
+    public RecordStreamHandler(Consumer<JSONObject> consumer) {
+        this.consumer = consumer;
+    }
+
+    @Override
+    public void startJSON() {
+        depth = 0;
+        started = false;
+        containers.clear();
+        entryKeys.clear();
+    }
+
+    @Override
+    public void endJSON() throws ParseException {
+        if (!started) {
+            // Nothing but white spaces in the data
+            throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+        }
+    }
+
+    @Override
+    public boolean startObject() throws ParseException {
+        if (depth++ == 0) {
+            // Top level must be an array of records
+            throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+        }
+        containers.push(new JSONObject());
+        return true;
+    }
+
+    @Override
+    public boolean endObject() throws ParseException {
+        depth--;
+        attach(containers.pop());
+        return true;
+    }
+
+    @Override
+    public boolean startObjectEntry(String key) {
+        entryKeys.push(key);
+        return true;
+    }
+
+    @Override
+    public boolean endObjectEntry() {
+        entryKeys.pop();
+        return true;
+    }
+
+    @Override
+    public boolean startArray() {
+        if (depth++ == 0) {
+            // The top level array is only walked through, never kept
+            started = true;
+        } else {
+            containers.push(new JSONArray());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean endArray() throws ParseException {
+        if (--depth > 0) {
+            attach(containers.pop());
+        }
+        return true;
+    }
+
+    @Override
+    public boolean primitive(Object value) throws ParseException {
+        attach(value);
+        return true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void attach(Object value) throws ParseException {
+        if (containers.isEmpty()) {
+            // A complete element of the top level array
+            if (depth != 1 || !(value instanceof JSONObject)) {
+                throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN);
+            }
+            consumer.accept((JSONObject) value);
+        } else if (containers.peek() instanceof JSONObject) {
+            ((JSONObject) containers.peek()).put(entryKeys.peek(), value);
+        } else {
+            ((JSONArray) containers.peek()).add(value);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.index.PostingList;
+import com.dts.discover.jsearch.store.Column;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/*
+ * Precomputed join between two data sets where a key of the child records (ie. organization_id) refers to a key of
+ * the parent records (ie. _id). Both directions of the relationship are kept as adjacency arrays of record ordinals
+ * so resolving the related records of a search result is an array lookup rather than another search.
+ *
+ * Children are stored in a compressed form, the children of parent p are the ordinals between
+ * childOffsets[p] and childOffsets[p + 1] in the children array.
+ *
+ * Ordinals change when a data set is reloaded, so the index only holds for the two versions it was built from.
+ */
+public class RelationIndex {
+
+    public static final int NONE = -1;
+
+    private final Dataset child;
+    private final Dataset parent;
+    private final int[] parents;
+    private final int[] childOffsets;
+    private final int[] children;
+
+    public RelationIndex(GenericParser child, String childKey, GenericParser parent, String parentKey) {
+        this(child.getDataset(), childKey, parent.getDataset(), parentKey);
+    }
+
+    public RelationIndex(Dataset child, String childKey, Dataset parent, String parentKey) {
+        this.child = child;
+        this.parent = parent;
+        // Map the parent key values to the parent ordinals, the first record wins if the key is not unique
+        Map<String, Integer> parentOrdinals = new HashMap<>();
+        for (int ordinal = 0; ordinal < parent.size(); ordinal++) {
+            Object parentValue = parent.getValue(ordinal, parentKey);
+            if (parentValue != null) {
+                parentOrdinals.putIfAbsent(Column.fold(parentValue), ordinal);
+            }
+        }
+        // Resolve the parent of every child and count the children of every parent
+        parents = new int[child.size()];
+        int[] childCounts = new int[parent.size()];
+        for (int ordinal = 0; ordinal < child.size(); ordinal++) {
+            Object childValue = child.getValue(ordinal, childKey);
+            Integer parentOrdinal = childValue == null ? null : parentOrdinals.get(Column.fold(childValue));
+            parents[ordinal] = parentOrdinal == null ? NONE : parentOrdinal;
+            if (parentOrdinal != null) {
+                childCounts[parentOrdinal]++;
+            }
+        }
+        // Lay out the children of each parent next to each other, keeping them in load order
+        childOffsets = new int[parent.size() + 1];
+        for (int ordinal = 0; ordinal < parent.size(); ordinal++) {
+            childOffsets[ordinal + 1] = childOffsets[ordinal] + childCounts[ordinal];
+        }
+        children = new int[childOffsets[parent.size()]];
+        int[] next = new int[parent.size()];
+        for (int ordinal = 0; ordinal < parents.length; ordinal++) {
+            if (parents[ordinal] != NONE) {
+                children[childOffsets[parents[ordinal]] + next[parents[ordinal]]++] = ordinal;
+            }
+        }
+    }
+
+    public boolean joins(Dataset child, Dataset parent) {
+        // Whether this index is still valid for the given versions of the data sets
+        return this.child == child && this.parent == parent;
+    }
+
+    public int parentOf(int childOrdinal) {
+        return parents[childOrdinal];
+    }
+
+    public int[] childrenOf(int parentOrdinal) {
+        if (parentOrdinal == NONE) {
+            return PostingList.EMPTY;
+        }
+        int from = childOffsets[parentOrdinal];
+        int to = childOffsets[parentOrdinal + 1];
+        int[] result = new int[to - from];
+        System.arraycopy(children, from, result, 0, result.length);
+        return result;
+    }
+}
@@ -0,0 +1,46 @@
+package com.dts.discover.jsearch.parser;
+
+/*
+ * One page of search results. The cursor of the next page is the ordinal of the first match which didn't fit in to
+ * this page, so fetching the next page carries on scanning from there instead of starting over.
+ *
+ * The ordinals refer to the records of the data set the page was found in, which is kept with the page so the
+ * results still resolve to the same records after the data set has been reloaded.
+ */
+public class SearchPage {
+
+    public static final int END = -1;
+
+    private final Dataset dataset;
+    private final int[] ordinals;
+    private final int nextCursor;
+    private final long scanned;
+
+    SearchPage(Dataset dataset, int[] ordinals, int nextCursor, long scanned) {
+        this.dataset = dataset;
+        this.ordinals = ordinals;
+        this.nextCursor = nextCursor;
+        this.scanned = scanned;
+    }
+
+    public Dataset getDataset() {
+        return dataset;
+    }
+
+    public int[] getOrdinals() {
+        return ordinals;
+    }
+
+    public int getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasMore() {
+        return nextCursor != END;
+    }
+
+    public long getScanned() {
+        // Number of records looked at to build this page
+        return scanned;
+    }
+}
@@ -0,0 +1,119 @@
+package com.dts.discover.jsearch.parser;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/*
+ * Binary snapshot of a parsed data set so the following starts can skip the Json parsing. The snapshot starts with a
+ * header made of a magic number, the format version and a SHA-256 hash of the source file content, and ends with a
+ * CRC-32 of the body. A snapshot is only used when all four match, otherwise the data set is parsed again and the
+ * snapshot is rewritten, so a damaged body is never read.
+ *
+ * The version has to be bumped whenever the layout of anything written to the snapshot changes.
+ */
+public class SnapshotFile {
+
+    private static final int MAGIC = 0x4A534E50;
+    private static final int VERSION = 6;
+    private static final int HASH_LENGTH = 32;
+    private static final int HEADER_LENGTH = 8 + HASH_LENGTH;
+    private static final int CHECKSUM_LENGTH = Long.BYTES;
+
+    private final Path path;
+    private final byte[] contentHash;
+
+    public SnapshotFile(Path directory, String fileName, InputStream source) throws IOException {
+        // One snapshot per source file, named after the file so an outdated snapshot gets replaced
+        path = directory.resolve(fileName.replaceAll("[^A-Za-z0-9._-]", "_") + ".snapshot");
+        contentHash = hash(source);
+    }
+
+    public ByteBuffer open() {
+        // Map the snapshot in to memory and return it positioned after the header, null if it can't be used
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            byte[] storedHash = new byte[HASH_LENGTH];
+            if (buffer.remaining() < HEADER_LENGTH + CHECKSUM_LENGTH || buffer.getInt() != MAGIC ||
+                    buffer.getInt() != VERSION) {
+                return null;
+            }
+            buffer.get(storedHash);
+            if (!Arrays.equals(storedHash, contentHash)) {
+                return null;
+            }
+            // The body is left out of the buffer returned, which ends where the checksum starts
+            int bodyEnd = buffer.limit() - CHECKSUM_LENGTH;
+            long storedChecksum = buffer.getLong(bodyEnd);
+            buffer.limit(bodyEnd);
+            CRC32 checksum = new CRC32();
+            checksum.update(buffer.duplicate());
+            if (checksum.getValue() != storedChecksum) {
+                System.err.println("Ignoring the snapshot " + path + " as its content is damaged");
+                return null;
+            }
+            return buffer;
+        } catch (IOException e) {
+            System.err.println("Unable to read the snapshot " + path + " : " + e.getMessage());
+            return null;
+        }
+    }
+
+    public void write(SnapshotWriter body) {
+        // Write to a temporary file first and move it in place so a half written snapshot is never picked up
+        try {
+            Files.createDirectories(path.getParent());
+            Path temp = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.write(contentHash);
+                CheckedOutputStream checked = new CheckedOutputStream(out, new CRC32());
+                DataOutputStream bodyOut = new DataOutputStream(new BufferedOutputStream(checked));
+                body.write(bodyOut);
+                bodyOut.flush();
+                out.writeLong(checked.getChecksum().getValue());
+            } catch (IOException e) {
+                Files.deleteIfExists(temp);
+                throw e;
+            }
+            Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            // Not being able to save the snapshot only costs the parsing time on the next start
+            System.err.println("Unable to write the snapshot " + path + " : " + e.getMessage());
+        }
+    }
+
+    private static byte[] hash(InputStream source) throws IOException {
+        try (DigestInputStream in = new DigestInputStream(source, MessageDigest.getInstance("SHA-256"))) {
+            byte[] buffer = new byte[64 * 1024];
+            while (in.read(buffer) != -1) {
+                // Reading through the stream updates the digest
+            }
+            return in.getMessageDigest().digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+
+    public interface SnapshotWriter {
+        void write(DataOutputStream out) throws IOException;
+    }
+}
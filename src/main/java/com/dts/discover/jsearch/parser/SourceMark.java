@@ -0,0 +1,93 @@
+package com.dts.discover.jsearch.parser;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/*
+ * Remembers where the last record of a data file ends along with a hash of the file up to that point. If the file
+ * still starts with exactly the same bytes after it has changed, the only change is what comes after the last
+ * record, which is either nothing or more records. Those can be parsed on their own and added to the existing data
+ * instead of loading the whole file again.
+ */
+class SourceMark {
+
+    private final long lastRecordEnd;
+    private final byte[] prefixHash;
+
+    private SourceMark(long lastRecordEnd, byte[] prefixHash) {
+        this.lastRecordEnd = lastRecordEnd;
+        this.prefixHash = prefixHash;
+    }
+
+    static SourceMark of(Path file) throws IOException {
+        // Null when the file doesn't end with an array of records, appends can't be spotted then
+        long end = lastRecordEnd(file);
+        return end < 0 ? null : new SourceMark(end, hash(file, end + 1));
+    }
+
+    boolean isPrefixOf(Path file) throws IOException {
+        return Files.size(file) > lastRecordEnd && Arrays.equals(hash(file, lastRecordEnd + 1), prefixHash);
+    }
+
+    InputStream openTail(Path file) throws IOException {
+        // The file from just after the last record, starting with a comma if records have been appended
+        InputStream in = new BufferedInputStream(Files.newInputStream(file));
+        long remaining = lastRecordEnd + 1;
+        while (remaining > 0) {
+            long skipped = in.skip(remaining);
+            if (skipped <= 0) {
+                in.close();
+                throw new IOException("Data file is shorter than expected");
+            }
+            remaining -= skipped;
+        }
+        return in;
+    }
+
+    private static long lastRecordEnd(Path file) throws IOException {
+        // Walk back from the end of the file over the closing bracket of the array to the brace of the last record
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            ByteBuffer single = ByteBuffer.allocate(1);
+            boolean closed = false;
+            for (long position = channel.size() - 1; position >= 0; position--) {
+                single.clear();
+                channel.read(single, position);
+                char c = (char) single.get(0);
+                if (Character.isWhitespace(c)) {
+                    continue;
+                }
+                if (c == ']' && !closed) {
+                    closed = true;
+                    continue;
+                }
+                return closed && c == '}' ? position : -1;
+            }
+            return -1;
+        }
+    }
+
+    private static byte[] hash(Path file, long length) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buffer = new byte[64 * 1024];
+            long remaining = length;
+            int read;
+            while (remaining > 0 && (read = in.read(buffer, 0, (int) Math.min(buffer.length, remaining))) != -1) {
+                digest.update(buffer, 0, read);
+                remaining -= read;
+            }
+            return digest.digest();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IOException(e);
+        }
+    }
+}
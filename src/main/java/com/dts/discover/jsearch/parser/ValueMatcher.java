@@ -0,0 +1,81 @@
+package com.dts.discover.jsearch.parser;
+
+/*
+ * Search value compiled once per search in to a check of the case folded values held by the columns. Each mode has
+ * an implementation of its own and none of them allocate while matching, the values are compared char by char where
+ * they are stored.
+ *
+ * Partial matches go through String.contains, which the JVM compiles in to a vectorised search that measured faster
+ * than a Boyer-Moore-Horspool skip table over the stored chars for search values of every length tried.
+ */
+public abstract class ValueMatcher {
+
+    public abstract boolean matches(String foldedValue);
+
+    public static ValueMatcher compile(MatchMode mode, String normalisedValue) {
+        switch (mode) {
+            case EXACT:
+                return new Exact(normalisedValue);
+            case PREFIX:
+                return new Prefix(normalisedValue);
+            case SUFFIX:
+                return new Suffix(normalisedValue);
+            case CONTAINS:
+                return new Contains(normalisedValue);
+            default:
+                throw new IllegalArgumentException("Values can't be matched by " + mode);
+        }
+    }
+
+    private static final class Exact extends ValueMatcher {
+        private final String value;
+
+        private Exact(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean matches(String foldedValue) {
+            return foldedValue.equals(value);
+        }
+    }
+
+    private static final class Prefix extends ValueMatcher {
+        private final String value;
+
+        private Prefix(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean matches(String foldedValue) {
+            return foldedValue.startsWith(value);
+        }
+    }
+
+    private static final class Suffix extends ValueMatcher {
+        private final String value;
+
+        private Suffix(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean matches(String foldedValue) {
+            return foldedValue.endsWith(value);
+        }
+    }
+
+    private static final class Contains extends ValueMatcher {
+        private final String value;
+
+        private Contains(String value) {
+            this.value = value;
+        }
+
+        @Override
+        public boolean matches(String foldedValue) {
+            return foldedValue.contains(value);
+        }
+    }
+}
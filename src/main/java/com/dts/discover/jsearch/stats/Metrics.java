@@ -0,0 +1,86 @@
+package com.dts.discover.jsearch.stats;
+
+import org.json.simple.JSONObject;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/*
+ * Named latency histograms and counters of a component, ie. one per data set and one for the application. All of
+ * them are safe to update from any thread. The metrics can be printed as a table or exported as Json.
+ */
+public class Metrics {
+
+    private final String name;
+    // Sorted maps so the output is always in the same order
+    private final Map<String, LatencyHistogram> timers = new ConcurrentSkipListMap<>();
+    private final Map<String, LongAdder> counters = new ConcurrentSkipListMap<>();
+
+    public Metrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public LatencyHistogram timer(String timerName) {
+        return timers.computeIfAbsent(timerName, key -> new LatencyHistogram());
+    }
+
+    public void record(String timerName, long startNanos) {
+        // Record the time elapsed since the given System.nanoTime() reading
+        timer(timerName).record(System.nanoTime() - startNanos);
+    }
+
+    public void count(String counterName, long delta) {
+        counters.computeIfAbsent(counterName, key -> new LongAdder()).add(delta);
+    }
+
+    public long getCount(String counterName) {
+        LongAdder counter = counters.get(counterName);
+        return counter == null ? 0 : counter.sum();
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject toJSON() {
+        JSONObject timerValues = new JSONObject();
+        timers.forEach((timerName, timer) -> {
+            JSONObject timerValue = new JSONObject();
+            timerValue.put("count", timer.getCount());
+            timerValue.put("mean_us", micros(timer.getMean()));
+            timerValue.put("p50_us", micros(timer.getPercentile(50)));
+            timerValue.put("p95_us", micros(timer.getPercentile(95)));
+            timerValue.put("p99_us", micros(timer.getPercentile(99)));
+            timerValue.put("max_us", micros(timer.getMax()));
+            timerValues.put(timerName, timerValue);
+        });
+        JSONObject counterValues = new JSONObject();
+        counters.forEach((counterName, counter) -> counterValues.put(counterName, counter.sum()));
+        JSONObject json = new JSONObject();
+        json.put("name", name);
+        json.put("timers", timerValues);
+        json.put("counters", counterValues);
+        return json;
+    }
+
+    public String format() {
+        StringBuilder output = new StringBuilder(name).append('\n');
+        if (!timers.isEmpty()) {
+            output.append(String.format("  %-40s %8s %10s %10s %10s %10s%n", "timer (us)", "count", "p50", "p95",
+                    "p99", "max"));
+            timers.forEach((timerName, timer) -> output.append(String.format("  %-40s %8d %10d %10d %10d %10d%n",
+                    timerName, timer.getCount(), micros(timer.getPercentile(50)), micros(timer.getPercentile(95)),
+                    micros(timer.getPercentile(99)), micros(timer.getMax()))));
+        }
+        counters.forEach((counterName, counter) ->
+                output.append(String.format("  %-40s %8d%n", counterName, counter.sum())));
+        return output.toString();
+    }
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,386 @@
+package com.dts.discover.jsearch.store;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/*
+ * Values of a single key across all the records. Each distinct value is stored once in a dictionary, and the records
+ * only hold the int code of their value. Repeated values such as status, locale or tags cost four bytes per record
+ * instead of a full object, and matching can be done once per distinct value rather than once per record.
+ *
+ * The case folded form of the values, and of the elements of an array value such as tags so they can be matched on
+ * their own, is worked out the first time it is asked for and kept from then on. Any other value is taken as an array
+ * holding only itself. Long text which is only ever displayed, such as descriptions, is never folded at all.
+ *
+ * Once a column turns out to hold long text its text values are packed, kept as UTF-8 bytes and only turned back in
+ * to strings when a search or a page asks for them, and their folded forms are worked out each time rather than kept.
+ * A packed column, and one holding about as many distinct values as records such as ids and urls, drops its dictionary
+ * and no longer looks for an equal value when one is added, as that would cost a map entry per record for nothing.
+ * A copy shares the dictionary of the column it was made from until it adds a value of its own.
+ *
+ * When given a segment store, a column whose dictionary grows past the threshold of the store moves its values out
+ * of the heap in to the segments and only keeps their positions. From then on every value gets a code of its own
+ * without looking for an equal one, and the values are read back and folded each time they are asked for.
+ */
+public class Column {
+
+    public static final int MISSING = -1;
+    // Keys whose text values are longer than this on average hold text such as descriptions, which is rarely looked up
+    // by its whole value
+    public static final int LONG_TEXT_LENGTH = 64;
+    // Values seen before judging whether a column holds long text while it's being loaded
+    private static final int PACK_AFTER = 1024;
+    // Columns of at least this many values, with at least this share of distinct values per record in percent, are
+    // taken as near unique when sealed. Judged on all the records as a chunk of them tells ids apart from references
+    private static final int NEAR_UNIQUE_VALUES = 1024;
+    private static final int NEAR_UNIQUE_PERCENT = 90;
+
+    private final String key;
+    private final SegmentStore segments;
+    private final List<Object> values = new ArrayList<>();
+    private Map<Object, Integer> dictionary = new HashMap<>();
+    // Whether equal values are looked up in the dictionary and share a code
+    private boolean deduplicated = true;
+    private boolean sharedDictionary = false;
+    // Folded forms of the values folded so far, shared with the column this one was copied from until it grows
+    private volatile Folds folds;
+    private boolean sharedFolds = false;
+    // Chars of the text values, telling the keys holding long text apart
+    private long textLength = 0;
+    // Whether the text values are held as UTF-8 bytes
+    private boolean packed = false;
+    private int[] codes = new int[16];
+    private int size = 0;
+    // Codes are shared with the column this one was copied from until the first set
+    private boolean sharedCodes = false;
+    // Positions of the values in the segments by their code once they have been moved there, null until then
+    private long[] positions;
+    private int spilled = 0;
+    private boolean sharedPositions = false;
+
+    Column(String key) {
+        this(key, null);
+    }
+
+    Column(String key, SegmentStore segments) {
+        this.key = key.intern();
+        this.segments = segments;
+    }
+
+    int set(int ordinal, Object value) {
+        Integer code = isDeduplicated() ? dictionary.get(value) : null;
+        if (code == null) {
+            code = distinctValues();
+            addValue(value);
+        }
+        setCode(ordinal, code);
+        if (values.size() == PACK_AFTER && code == PACK_AFTER - 1) {
+            packLongText();
+        }
+        return code;
+    }
+
+    void append(Column other, int offset) {
+        // Add the values of a column of records which follow the records of this one, the codes of the other column
+        // are mapped to the codes of this one once per distinct value
+        if (other.positions != null && positions == null) {
+            spill();
+        }
+        int[] mapping = new int[other.distinctValues()];
+        if (packed && other.packed) {
+            // Packed values are taken over as they are, without turning them back in to strings
+            for (int code = 0; code < mapping.length; code++) {
+                mapping[code] = values.size();
+                values.add(other.values.get(code));
+            }
+            textLength += other.textLength;
+            if (segments != null && values.size() > segments.getThreshold()) {
+                spill();
+            }
+        }
+        for (int code = packed && other.packed ? mapping.length : 0; code < mapping.length; code++) {
+            if (other.positions != null && other.segments == segments) {
+                // Already in the same segments, only the position is taken over
+                mapping[code] = spilled;
+                addPosition(other.positions[code]);
+                continue;
+            }
+            Integer existing = isDeduplicated() ? dictionary.get(other.value(code)) : null;
+            if (existing == null) {
+                existing = distinctValues();
+                addValue(other.value(code));
+            }
+            mapping[code] = existing;
+        }
+        for (int ordinal = 0; ordinal < other.size; ordinal++) {
+            if (other.codes[ordinal] != MISSING) {
+                setCode(offset + ordinal, mapping[other.codes[ordinal]]);
+            }
+        }
+        if (values.size() >= PACK_AFTER) {
+            packLongText();
+        }
+    }
+
+    private void setCode(int ordinal, int code) {
+        if (ordinal >= codes.length || sharedCodes) {
+            codes = Arrays.copyOf(codes, Math.max(ordinal + 1, codes.length << 1));
+            sharedCodes = false;
+        }
+        // Records loaded before this key was first seen don't have a value for it
+        Arrays.fill(codes, size, ordinal, MISSING);
+        codes[ordinal] = code;
+        size = ordinal + 1;
+    }
+
+    Column copy() {
+        // The dictionary and the codes are shared, and only copied when the copy is added to
+        Column copy = new Column(key, segments);
+        copy.values.addAll(values);
+        copy.dictionary = dictionary;
+        copy.deduplicated = deduplicated;
+        copy.sharedDictionary = true;
+        copy.folds = folds;
+        copy.sharedFolds = folds != null;
+        copy.textLength = textLength;
+        copy.packed = packed;
+        copy.codes = codes;
+        copy.size = size;
+        copy.sharedCodes = true;
+        copy.positions = positions;
+        copy.spilled = spilled;
+        copy.sharedPositions = positions != null;
+        return copy;
+    }
+
+    public String getKey() {
+        return key;
+    }
+
+    public int code(int ordinal) {
+        return ordinal < size ? codes[ordinal] : MISSING;
+    }
+
+    public Object value(int code) {
+        if (positions != null) {
+            return segments.read(positions[code]);
+        }
+        return unpack(values.get(code));
+    }
+
+    private static Object unpack(Object value) {
+        // Json values are never byte arrays, so one is the packed form of a string
+        return value instanceof byte[] ? new String((byte[]) value, StandardCharsets.UTF_8) : value;
+    }
+
+    public String folded(int code) {
+        return positions == null && !packed ? folds(code).values[code] : fold(value(code));
+    }
+
+    public String[] foldedElements(int code) {
+        if (positions == null && !packed) {
+            return folds(code).elements[code];
+        }
+        Object value = value(code);
+        return foldElements(value, fold(value));
+    }
+
+    public long averageLength() {
+        // Average length of the text values, 0 for keys without any
+        return values.isEmpty() ? 0 : textLength / values.size();
+    }
+
+    public void compact() {
+        // Called on sealing, long text is packed and near unique columns drop their dictionary
+        packLongText();
+        if (isDeduplicated() && values.size() >= NEAR_UNIQUE_VALUES &&
+                values.size() * 100L >= (long) size * NEAR_UNIQUE_PERCENT) {
+            dropDictionary();
+        }
+    }
+
+    private void packLongText() {
+        // Pack the text values once they turn out to be long on average, called as values are added and on sealing
+        if (packed || positions != null || averageLength() <= LONG_TEXT_LENGTH) {
+            return;
+        }
+        for (int code = 0; code < values.size(); code++) {
+            if (values.get(code) instanceof String) {
+                values.set(code, ((String) values.get(code)).getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        packed = true;
+        folds = null;
+        dropDictionary();
+    }
+
+    private void dropDictionary() {
+        deduplicated = false;
+        dictionary = new HashMap<>();
+        sharedDictionary = false;
+    }
+
+    public boolean isDeduplicated() {
+        // Whether equal values share a code, so counting the codes counts the distinct values
+        return positions == null && deduplicated;
+    }
+
+    public int distinctElements() {
+        // Distinct folded elements, worked out without keeping the folded forms of columns which haven't been folded
+        Folds current = folds;
+        Set<String> elements = new HashSet<>();
+        for (int code = 0; code < distinctValues(); code++) {
+            if (current != null && code < current.count) {
+                elements.addAll(Arrays.asList(current.elements[code]));
+            } else {
+                Object value = value(code);
+                elements.addAll(Arrays.asList(foldElements(value, fold(value))));
+            }
+        }
+        return elements.size();
+    }
+
+    public int distinctValues() {
+        // Values moved to the segments are no longer told apart, so past that point it counts every value stored
+        return positions == null ? values.size() : spilled;
+    }
+
+    public boolean isSpilled() {
+        // Whether the values are held in the segments rather than in the heap
+        return positions != null;
+    }
+
+    public static String fold(Object value) {
+        // Values are compared ignoring the case, null values are treated the same as empty ones
+        return value == null ? "" : value.toString().toUpperCase();
+    }
+
+    private static String[] foldElements(Object value, String folded) {
+        if (!(value instanceof List)) {
+            return new String[]{folded};
+        }
+        List<?> elements = (List<?>) value;
+        String[] folds = new String[elements.size()];
+        for (int i = 0; i < folds.length; i++) {
+            folds[i] = fold(elements.get(i));
+        }
+        return folds;
+    }
+
+    private Folds folds(int code) {
+        Folds current = folds;
+        return current != null && code < current.count ? current : fold();
+    }
+
+    private synchronized Folds fold() {
+        // Fold the values added since the last time, searches of a sealed column all wait for the one doing it
+        Folds current = folds;
+        int from = current == null ? 0 : current.count;
+        if (from == values.size()) {
+            return current;
+        }
+        String[] foldedValues = current == null ? new String[values.size()] : current.values;
+        String[][] foldedElements = current == null ? new String[values.size()][] : current.elements;
+        if (foldedValues.length < values.size() || sharedFolds) {
+            // Grows by half again so folding the values one at a time as they are added stays linear
+            int capacity = Math.max(values.size(), foldedValues.length + (foldedValues.length >> 1));
+            foldedValues = Arrays.copyOf(foldedValues, capacity);
+            foldedElements = Arrays.copyOf(foldedElements, capacity);
+            sharedFolds = false;
+        }
+        for (int code = from; code < values.size(); code++) {
+            Object value = values.get(code);
+            foldedValues[code] = fold(value);
+            foldedElements[code] = foldElements(value, foldedValues[code]);
+        }
+        folds = new Folds(foldedValues, foldedElements, values.size());
+        return folds;
+    }
+
+    private void addValue(Object value) {
+        if (positions != null) {
+            addPosition(segments.write(value));
+            return;
+        }
+        if (value instanceof String) {
+            textLength += ((String) value).length();
+        }
+        if (packed) {
+            values.add(value instanceof String ? ((String) value).getBytes(StandardCharsets.UTF_8) : value);
+        } else {
+            if (deduplicated) {
+                if (sharedDictionary) {
+                    dictionary = new HashMap<>(dictionary);
+                    sharedDictionary = false;
+                }
+                dictionary.put(value, values.size());
+            }
+            values.add(value);
+        }
+        if (segments != null && values.size() > segments.getThreshold()) {
+            spill();
+        }
+    }
+
+    private void spill() {
+        // Move the values to the segments in the order of their codes so the codes of the records still hold
+        positions = new long[Math.max(16, values.size() << 1)];
+        for (Object value : values) {
+            addPosition(segments.write(unpack(value)));
+        }
+        values.clear();
+        folds = null;
+        dictionary = new HashMap<>();
+        sharedDictionary = false;
+    }
+
+    private void addPosition(long position) {
+        if (spilled == positions.length || sharedPositions) {
+            positions = Arrays.copyOf(positions, Math.max(spilled + 1, positions.length << 1));
+            sharedPositions = false;
+        }
+        positions[spilled++] = position;
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(distinctValues());
+        for (int code = 0; code < distinctValues(); code++) {
+            Object value = value(code);
+            SnapshotIO.writeValue(out, value);
+        }
+        SnapshotIO.writeInts(out, Arrays.copyOf(codes, size));
+    }
+
+    void readFrom(ByteBuffer in) throws IOException {
+        for (int i = in.getInt(); i > 0; i--) {
+            addValue(SnapshotIO.readValue(in));
+        }
+        codes = SnapshotIO.readInts(in);
+        size = codes.length;
+    }
+
+    /*
+     * Folded forms of the first count values. The arrays may have room for more, which a later fold of the same
+     * column fills in before the count covering them is published.
+     */
+    private static class Folds {
+        private final String[] values;
+        private final String[][] elements;
+        private final int count;
+
+        private Folds(String[] values, String[][] elements, int count) {
+            this.values = values;
+            this.elements = elements;
+            this.count = count;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.dts.discover.jsearch.store;
+
+import org.json.simple.JSONObject;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/*
+ * Column oriented store of the records of a data set. Rather than keeping a HashMap per record with its own copy of
+ * every key, each key is held once as a dictionary encoded column (see Column) and a record is only an ordinal into
+ * those columns. Records are turned back in to Json objects only when they have to be displayed.
+ */
+public class RecordStore {
+
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    // Where the columns with too many distinct values keep them, null to keep everything in the heap
+    private final SegmentStore segments;
+    private int size = 0;
+
+    public RecordStore() {
+        this(null);
+    }
+
+    public RecordStore(SegmentStore segments) {
+        this.segments = segments;
+    }
+
+    @SuppressWarnings("unchecked")
+    public int add(JSONObject record) {
+        int ordinal = size++;
+        for (Object entry : record.entrySet()) {
+            var field = (Map.Entry<String, Object>) entry;
+            columns.computeIfAbsent(field.getKey(), this::newColumn).set(ordinal, field.getValue());
+        }
+        return ordinal;
+    }
+
+    public void append(RecordStore other) {
+        // Add the records of another store after the records of this one
+        other.columns.forEach((key, column) -> columns.computeIfAbsent(key, this::newColumn).append(column, size));
+        size += other.size;
+    }
+
+    public RecordStore copy() {
+        // Independent copy which can be added to while this store is still being read
+        RecordStore copy = new RecordStore(segments);
+        columns.forEach((key, column) -> copy.columns.put(key, column.copy()));
+        copy.size = size;
+        return copy;
+    }
+
+    private Column newColumn(String key) {
+        return new Column(key, segments);
+    }
+
+    public SegmentStore getSegments() {
+        return segments;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Column column(String key) {
+        return columns.get(key);
+    }
+
+    public Collection<Column> columns() {
+        return columns.values();
+    }
+
+    @SuppressWarnings("unchecked")
+    public JSONObject materialise(int ordinal) {
+        JSONObject record = new JSONObject();
+        for (Column column : columns.values()) {
+            int code = column.code(ordinal);
+            if (code != Column.MISSING) {
+                record.put(column.getKey(), column.value(code));
+            }
+        }
+        return record;
+    }
+
+    public void writeTo(DataOutputStream out) throws IOException {
+        out.writeInt(size);
+        out.writeInt(columns.size());
+        for (Column column : columns.values()) {
+            SnapshotIO.writeString(out, column.getKey());
+            column.writeTo(out);
+        }
+    }
+
+    public void readFrom(ByteBuffer in) throws IOException {
+        size = in.getInt();
+        for (int i = in.getInt(); i > 0; i--) {
+            Column column = newColumn(SnapshotIO.readString(in));
+            column.readFrom(in);
+            columns.put(column.getKey(), column);
+        }
+    }
+}
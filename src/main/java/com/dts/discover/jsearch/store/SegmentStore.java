@@ -0,0 +1,125 @@
+package com.dts.discover.jsearch.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/*
+ * Append only storage of values in memory mapped segment files, for the columns with too many distinct values to keep
+ * in the heap. Values are written one after the other in the tagged layout of the snapshots (see SnapshotIO) and are
+ * found again by their position, the number of the segment in the high int and the offset within it in the low int,
+ * which the columns keep in an offset table. The operating system pages the values in and out as they are read, so
+ * the heap only holds eight bytes per value.
+ *
+ * Segments are mapped as they are created and filled in place. Values are written by one thread at a time and can be
+ * read by any number of threads. The files and their directory are removed when the store is deleted, and the stores
+ * still in use when the application exits are deleted by a single shutdown hook, so a long running server reloading
+ * its data over and over doesn't pile up exit time registrations.
+ */
+public class SegmentStore {
+
+    private static final int SEGMENT_BYTES = 64 * 1024 * 1024;
+    // Stores not deleted yet, deleted on exit
+    private static final Set<SegmentStore> LIVE = ConcurrentHashMap.newKeySet();
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> LIVE.forEach(SegmentStore::delete), "segment-cleanup"));
+    }
+
+    private final Path directory;
+    private final int threshold;
+    private final List<MappedByteBuffer> segments = new CopyOnWriteArrayList<>();
+    private MappedByteBuffer current;
+
+    private SegmentStore(Path directory, int threshold) {
+        this.directory = directory;
+        this.threshold = threshold;
+    }
+
+    public static SegmentStore create(Path parent, int threshold) throws IOException {
+        // Each store gets a directory of its own so stores of several data sets and versions never clash
+        Files.createDirectories(parent);
+        SegmentStore store = new SegmentStore(Files.createTempDirectory(parent, "segments"), threshold);
+        LIVE.add(store);
+        return store;
+    }
+
+    public int getThreshold() {
+        // Distinct values a column keeps in the heap before its values are moved in to the segments
+        return threshold;
+    }
+
+    synchronized long write(Object value) {
+        byte[] bytes = encode(value);
+        if (current == null || current.remaining() < bytes.length) {
+            current = newSegment(Math.max(SEGMENT_BYTES, bytes.length));
+            segments.add(current);
+        }
+        long position = (long) (segments.size() - 1) << 32 | current.position();
+        current.put(bytes);
+        return position;
+    }
+
+    Object read(long position) {
+        // Reading through a view of the segment of its own leaves the segment free for other readers
+        ByteBuffer segment = segments.get((int) (position >>> 32)).duplicate();
+        segment.position((int) position);
+        try {
+            return SnapshotIO.readValue(segment);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void delete() {
+        // Mapped segments stay readable until they are garbage collected, so searches still running on them finish
+        LIVE.remove(this);
+        for (int segment = 0; segment < segments.size(); segment++) {
+            try {
+                Files.deleteIfExists(segmentFile(segment));
+            } catch (IOException e) {
+                System.err.println("Unable to delete the segment " + segmentFile(segment) + " : " + e.getMessage());
+            }
+        }
+        try {
+            Files.deleteIfExists(directory);
+        } catch (IOException e) {
+            System.err.println("Unable to delete the segments " + directory + " : " + e.getMessage());
+        }
+    }
+
+    private MappedByteBuffer newSegment(int size) {
+        Path file = segmentFile(segments.size());
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Unable to create the segment " + file, e);
+        }
+    }
+
+    private Path segmentFile(int segment) {
+        return directory.resolve(String.format("segment-%05d", segment));
+    }
+
+    private static byte[] encode(Object value) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            SnapshotIO.writeValue(out, value);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+}
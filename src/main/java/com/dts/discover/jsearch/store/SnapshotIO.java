@@ -0,0 +1,129 @@
+package com.dts.discover.jsearch.store;
+
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+/*
+ * Helpers to write the building blocks of the stores and indexes to a binary snapshot and read them back from a
+ * (memory mapped) byte buffer. Numbers are written big endian which is what both DataOutputStream and ByteBuffer use.
+ *
+ * Values are written with a leading tag byte so the original Json types are restored as they were parsed.
+ */
+public class SnapshotIO {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte LONG = 2;
+    private static final byte DOUBLE = 3;
+    private static final byte BOOLEAN = 4;
+    private static final byte ARRAY = 5;
+    private static final byte OBJECT = 6;
+
+    private SnapshotIO() {
+    }
+
+    public static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    public static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[length(in, 1)];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    public static void writeInts(DataOutputStream out, int[] values) throws IOException {
+        out.writeInt(values.length);
+        for (int value : values) {
+            out.writeInt(value);
+        }
+    }
+
+    public static int[] readInts(ByteBuffer in) {
+        int[] values = new int[length(in, Integer.BYTES)];
+        in.asIntBuffer().get(values);
+        in.position(in.position() + values.length * Integer.BYTES);
+        return values;
+    }
+
+    private static int length(ByteBuffer in, int elementBytes) {
+        // A length running past the end of the snapshot is refused before anything that big is allocated
+        int length = in.getInt();
+        if (length < 0 || (long) length * elementBytes > in.remaining()) {
+            throw new IllegalStateException("Length " + length + " runs past the end of the snapshot");
+        }
+        return length;
+    }
+
+    public static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof String) {
+            out.writeByte(STRING);
+            writeString(out, (String) value);
+        } else if (value instanceof Long) {
+            out.writeByte(LONG);
+            out.writeLong((Long) value);
+        } else if (value instanceof Double) {
+            out.writeByte(DOUBLE);
+            out.writeDouble((Double) value);
+        } else if (value instanceof Boolean) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean((Boolean) value);
+        } else if (value instanceof JSONArray) {
+            out.writeByte(ARRAY);
+            out.writeInt(((JSONArray) value).size());
+            for (Object element : (JSONArray) value) {
+                writeValue(out, element);
+            }
+        } else if (value instanceof JSONObject) {
+            out.writeByte(OBJECT);
+            out.writeInt(((JSONObject) value).size());
+            for (Object entry : ((JSONObject) value).entrySet()) {
+                writeString(out, ((Map.Entry<?, ?>) entry).getKey().toString());
+                writeValue(out, ((Map.Entry<?, ?>) entry).getValue());
+            }
+        } else {
+            throw new IOException("Unsupported value type " + value.getClass().getName());
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    public static Object readValue(ByteBuffer in) throws IOException {
+        byte tag = in.get();
+        switch (tag) {
+            case NULL:
+                return null;
+            case STRING:
+                return readString(in);
+            case LONG:
+                return in.getLong();
+            case DOUBLE:
+                return in.getDouble();
+            case BOOLEAN:
+                return in.get() != 0;
+            case ARRAY:
+                JSONArray array = new JSONArray();
+                for (int i = in.getInt(); i > 0; i--) {
+                    array.add(readValue(in));
+                }
+                return array;
+            case OBJECT:
+                JSONObject object = new JSONObject();
+                for (int i = in.getInt(); i > 0; i--) {
+                    object.put(readString(in), readValue(in));
+                }
+                return object;
+            default:
+                throw new IOException("Unknown value tag " + tag);
+        }
+    }
+}
@@ -0,0 +1,93 @@
+package com.dts.discover.jsearch.app;
+
+import com.dts.discover.jsearch.config.TestFiles;
+import com.dts.discover.jsearch.parser.DatasetLoader;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+
+class BatchSearchTest {
+
+    private TestFiles files;
+    private ExecutorService executor;
+    private BatchSearch batch;
+
+    @BeforeEach
+    void start() throws Exception {
+        files = new TestFiles();
+        String tickets = files.write("tickets.json", "[{\"_id\": 1, \"status\": \"open\", \"assignee\": \"Zoë\"}," +
+                "{\"_id\": 2, \"status\": \"closed\", \"assignee\": \"Ann\"}," +
+                "{\"_id\": 3, \"status\": \"open\", \"assignee\": \"\"}]").toString();
+        executor = BatchSearch.newExecutor(4);
+        batch = new BatchSearch(List.of(new DatasetLoader("tickets", tickets, null, Runnable::run)),
+                executor);
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        executor.shutdown();
+        files.close();
+    }
+
+    private List<JSONObject> run(String searches, int failures) throws Exception {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        Assertions.assertEquals(failures,
+                batch.run(new ByteArrayInputStream(searches.getBytes(StandardCharsets.UTF_8)), output));
+        List<JSONObject> results = new ArrayList<>();
+        for (String line : output.toString(StandardCharsets.UTF_8).split("\n")) {
+            results.add((JSONObject) new JSONParser().parse(line));
+        }
+        return results;
+    }
+
+    private static List<Long> ids(JSONObject result) {
+        List<Long> ids = new ArrayList<>();
+        for (Object record : (JSONArray) result.get("results")) {
+            ids.add((Long) ((JSONObject) record).get("_id"));
+        }
+        return ids;
+    }
+
+    @Test
+    void resultsAreWrittenInTheOrderOfTheSearches() throws Exception {
+        List<JSONObject> results = run("# open tickets first\ntickets\tstatus\t=open\n\n" +
+                "tickets\tstatus=closed or _id=3\ntickets\tassignee\t[]\n", 0);
+        Assertions.assertEquals(3, results.size());
+        Assertions.assertEquals(2L, results.get(0).get("line"));
+        Assertions.assertEquals(List.of(1L, 3L), ids(results.get(0)));
+        Assertions.assertEquals(4L, results.get(1).get("line"));
+        Assertions.assertEquals(List.of(2L, 3L), ids(results.get(1)));
+        Assertions.assertEquals(List.of(3L), ids(results.get(2)));
+    }
+
+    @Test
+    void failedSearchesOnlyFailTheirOwnLine() throws Exception {
+        List<JSONObject> results = run("tickets\tnothing\topen\nusers\t_id\t1\ntickets\tstatus\topen\n" +
+                "tickets\tstatus=open and\ntickets\tstatus\tpending\n", 3);
+        Assertions.assertTrue(results.get(0).get("error").toString().contains("nothing"));
+        Assertions.assertTrue(results.get(1).get("error").toString().contains("Unknown data set users"));
+        Assertions.assertEquals(List.of(1L, 3L), ids(results.get(2)));
+        Assertions.assertNotNull(results.get(3).get("error"));
+        // Nothing matching is an answer rather than a failure
+        Assertions.assertEquals(List.of(), ids(results.get(4)));
+    }
+
+    @Test
+    void utf8ValuesGoOutAsTheyCameIn() throws Exception {
+        List<JSONObject> results = run("tickets\tassignee\t=zoë\n", 0);
+        Assertions.assertEquals("=zoë", results.get(0).get("value"));
+        Assertions.assertEquals("Zoë", ((JSONObject) ((JSONArray) results.get(0).get("results")).get(0))
+                .get("assignee"));
+    }
+}
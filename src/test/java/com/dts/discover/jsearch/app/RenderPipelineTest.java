@@ -0,0 +1,125 @@
+package com.dts.discover.jsearch.app;
+
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.stats.Metrics;
+import org.json.simple.JSONObject;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.IntStream;
+
+public class RenderPipelineTest {
+
+    private static final int THREADS = 3;
+    private static final long BUFFER = 1024 * 1024;
+
+    @SuppressWarnings("unchecked")
+    private static JSONObject page(int ordinal, List<String> displayOrder) throws DataLoadException {
+        // Later pages are quicker to build so they finish out of order
+        try {
+            Thread.sleep(Math.max(0, 10 - ordinal));
+        } catch (InterruptedException e) {
+            throw new DataLoadException("Interrupted");
+        }
+        JSONObject record = new JSONObject();
+        record.put("n", ordinal);
+        JSONObject page = new JSONObject();
+        page.put("record", record);
+        displayOrder.add("record");
+        return page;
+    }
+
+    @Test
+    void pagesAreWrittenInTheOrderOfTheResults() throws Exception {
+        int[] ordinals = IntStream.range(0, 12).toArray();
+        StringWriter serial = new StringWriter();
+        new RenderPipeline(1, BUFFER, false, new Metrics("test"))
+                .render(null, ordinals, (dataset, ordinal, order) -> page(ordinal, order), serial);
+        StringWriter parallel = new StringWriter();
+        new RenderPipeline(THREADS, BUFFER, false, new Metrics("test"))
+                .render(null, ordinals, (dataset, ordinal, order) -> page(ordinal, order), parallel);
+        Assertions.assertEquals(serial.toString(), parallel.toString());
+        Assertions.assertTrue(parallel.toString().indexOf("n :: 2") < parallel.toString().indexOf("n :: 11"));
+    }
+
+    @Test
+    void workersOnlyGetAWindowAheadOfTheWriter() throws Exception {
+        AtomicInteger started = new AtomicInteger();
+        List<Integer> aheadWhenWritten = new ArrayList<>();
+        StringWriter writer = new StringWriter() {
+            private int written = 0;
+
+            @Override
+            public void write(String text) {
+                // Every page is written in one go followed by a line separator
+                if (!text.equals(System.lineSeparator())) {
+                    aheadWhenWritten.add(started.get() - written++);
+                }
+                super.write(text);
+            }
+        };
+        new RenderPipeline(THREADS, BUFFER, false, new Metrics("test")).render(null, IntStream.range(0, 40).toArray(),
+                (dataset, ordinal, order) -> {
+                    started.incrementAndGet();
+                    return page(ordinal, order);
+                }, writer);
+        Assertions.assertEquals(40, aheadWhenWritten.size());
+        Assertions.assertTrue(aheadWhenWritten.stream().allMatch(ahead -> ahead <= 2 * THREADS),
+                aheadWhenWritten::toString);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void largePagesShrinkTheWindow() throws Exception {
+        // Pages of a bit over 1000 chars with room for 2500 leave two pages ahead of the writer once one is written
+        AtomicInteger started = new AtomicInteger();
+        List<Integer> aheadWhenWritten = new ArrayList<>();
+        StringWriter writer = new StringWriter() {
+            private int written = 0;
+
+            @Override
+            public void write(String text) {
+                if (!text.equals(System.lineSeparator())) {
+                    aheadWhenWritten.add(started.get() - written++);
+                }
+                super.write(text);
+            }
+        };
+        new RenderPipeline(THREADS, 2500, false, new Metrics("test")).render(null, IntStream.range(0, 20).toArray(),
+                (dataset, ordinal, order) -> {
+                    started.incrementAndGet();
+                    JSONObject page = page(ordinal, order);
+                    ((JSONObject) page.get("record")).put("text", "x".repeat(1000));
+                    return page;
+                }, writer);
+        Assertions.assertEquals(20, aheadWhenWritten.size());
+        Assertions.assertTrue(aheadWhenWritten.get(0) <= THREADS, aheadWhenWritten::toString);
+        Assertions.assertTrue(aheadWhenWritten.stream().skip(1).allMatch(ahead -> ahead <= 2),
+                aheadWhenWritten::toString);
+    }
+
+    @Test
+    void failedPagesFailTheRender() {
+        RenderPipeline pipeline = new RenderPipeline(THREADS, BUFFER, false, new Metrics("test"));
+        int[] ordinals = IntStream.range(0, 10).toArray();
+        Assertions.assertThrows(DataLoadException.class, () -> pipeline.render(null, ordinals,
+                (dataset, ordinal, order) -> {
+                    if (ordinal == 4) {
+                        throw new DataLoadException("Missing record");
+                    }
+                    return page(ordinal, order);
+                }, new StringWriter()));
+        Exception exception = Assertions.assertThrows(DataLoadException.class, () -> pipeline.render(null, ordinals,
+                (dataset, ordinal, order) -> {
+                    if (ordinal == 4) {
+                        throw new IllegalStateException("Broken record");
+                    }
+                    return page(ordinal, order);
+                }, new StringWriter()));
+        Assertions.assertTrue(exception.getMessage().contains("Broken record"));
+    }
+}
@@ -0,0 +1,69 @@
+package com.dts.discover.jsearch.app;
+
+import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.config.TestFiles;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.parser.DatasetLoader;
+import com.dts.discover.jsearch.parser.GenericParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class SearchAppTest {
+
+    private static final String MENU = "Enter your choice : ";
+
+    private static String run(String input, List<DatasetLoader> loaders) {
+        // The menu keeps asking until the input runs out
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        PrintStream printStream = new PrintStream(output, true, StandardCharsets.UTF_8);
+        SearchApp app = new SearchApp(new ByteArrayInputStream(input.getBytes(StandardCharsets.ISO_8859_1)),
+                printStream, loaders);
+        Assertions.assertThrows(NoSuchElementException.class, app::run);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    private static DatasetLoader loader(String name) {
+        return new DatasetLoader(name, TestConfig.TEST_FILE_URL, null, Runnable::run);
+    }
+
+    @Test
+    void menuIsShownAgainAfterAPageFailsToRender() {
+        // The organisations are there when the search starts but can't be had once the ticket pages need them
+        AtomicInteger asked = new AtomicInteger();
+        DatasetLoader orgs = new DatasetLoader("organisations", TestConfig.TEST_FILE_URL, null, Runnable::run) {
+            @Override
+            public GenericParser get() throws DataLoadException {
+                if (asked.incrementAndGet() > 1) {
+                    throw new DataLoadException("Organisations went away");
+                }
+                return super.get();
+            }
+        };
+        String output = run("3\n_id\n=1\n", List.of(loader("users"), orgs, loader("tickets")));
+        Assertions.assertTrue(output.contains("Organisations went away"), output);
+        int failure = output.indexOf("Organisations went away");
+        Assertions.assertTrue(output.indexOf(MENU, failure) > failure, output);
+    }
+
+    @Test
+    void quotedValuesEndingWithAQuestionMarkAreSearched() throws Exception {
+        try (TestFiles files = new TestFiles()) {
+            String tickets = files.write("tickets.json",
+                    "[{\"_id\": 1, \"subject\": \"why?\"}, {\"_id\": 2, \"subject\": \"why not\"}]").toString();
+            DatasetLoader ticketLoader = new DatasetLoader("tickets", tickets, null, Runnable::run);
+            String output = run("3\nsubject\n\"why?\"\n3\nsubject\n=\"WHY?\"\n",
+                    List.of(loader("users"), loader("organisations"), ticketLoader));
+            Assertions.assertEquals(2, output.split("subject +:: why\\?", -1).length - 1, output);
+            Assertions.assertFalse(output.contains("why not"), output);
+            Assertions.assertFalse(output.contains("Nothing to complete"), output);
+        }
+    }
+}
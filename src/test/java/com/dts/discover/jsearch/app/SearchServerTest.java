@@ -0,0 +1,90 @@
+package com.dts.discover.jsearch.app;
+
+import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.config.TestFiles;
+import com.dts.discover.jsearch.parser.DatasetLoader;
+import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
+import org.json.simple.parser.JSONParser;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+class SearchServerTest {
+
+    private final HttpClient client = HttpClient.newHttpClient();
+    private TestFiles files;
+    private DatasetLoader ticketLoader;
+    private SearchServer server;
+
+    @BeforeEach
+    void start() throws Exception {
+        files = new TestFiles();
+        ticketLoader = new DatasetLoader("tickets", files.write("tickets.json", TestFiles.tickets(5)).toString(), null,
+                Runnable::run);
+        server = new SearchServer(List.of(new DatasetLoader("users", TestConfig.TEST_FILE_URL, null, Runnable::run),
+                new DatasetLoader("organisations", TestConfig.TEST_FILE_URL, null, Runnable::run), ticketLoader),
+                0, 2);
+        server.start();
+    }
+
+    @AfterEach
+    void stop() throws Exception {
+        server.stop();
+        files.close();
+    }
+
+    private HttpResponse<String> get(String path) throws Exception {
+        return client.send(HttpRequest.newBuilder(URI.create("http://localhost:" + server.getPort() + path)).build(),
+                HttpResponse.BodyHandlers.ofString());
+    }
+
+    private static JSONObject json(HttpResponse<String> response) throws Exception {
+        return (JSONObject) new JSONParser().parse(response.body());
+    }
+
+    private static long firstId(JSONObject page) {
+        return (Long) ((JSONObject) ((JSONArray) page.get("results")).get(0)).get("_id");
+    }
+
+    @Test
+    void nextCursorCarriesOnTheSearch() throws Exception {
+        JSONObject first = json(get("/search?dataset=tickets&key=status&value=open&limit=2"));
+        Assertions.assertEquals(1, firstId(first));
+        JSONObject second = json(get("/search?dataset=tickets&key=status&value=open&limit=2&cursor=" +
+                first.get("next")));
+        Assertions.assertEquals(3, firstId(second));
+        JSONObject last = json(get("/search?dataset=tickets&key=status&value=open&limit=2&cursor=" +
+                second.get("next")));
+        Assertions.assertEquals(5, firstId(last));
+        Assertions.assertNull(last.get("next"));
+    }
+
+    @Test
+    void cursorOfAReloadedDataSetIsRefused() throws Exception {
+        JSONObject first = json(get("/search?dataset=tickets&key=status&value=open&limit=2"));
+        files.write("tickets.json", TestFiles.tickets(8));
+        Assertions.assertTrue(ticketLoader.get().reload());
+        HttpResponse<String> second = get("/search?dataset=tickets&key=status&value=open&limit=2&cursor=" +
+                first.get("next"));
+        Assertions.assertEquals(409, second.statusCode());
+        Assertions.assertTrue(json(second).get("error").toString().contains("start it again"));
+        JSONObject restarted = json(get("/search?dataset=tickets&key=status&value=open&limit=2"));
+        Assertions.assertEquals(1, firstId(restarted));
+    }
+
+    @Test
+    void badParametersAreRejected() throws Exception {
+        Assertions.assertEquals(400, get("/search?dataset=tickets&key=status&value=open&limit=0").statusCode());
+        Assertions.assertEquals(400, get("/search?dataset=tickets&key=status&value=open&cursor=abc").statusCode());
+        Assertions.assertEquals(400, get("/search?dataset=tickets&key=nothing&value=open").statusCode());
+        Assertions.assertEquals(404, get("/search?dataset=bogus&key=status&value=open").statusCode());
+    }
+}
@@ -0,0 +1,58 @@
+package com.dts.discover.jsearch.config;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+/*
+ * Temporary directory for the data files, snapshots and segments of a test, deleted with everything in it on close.
+ * Created in a @BeforeEach and closed in an @AfterEach, or in a try with resources for a single test.
+ */
+public class TestFiles implements AutoCloseable {
+
+    private final Path directory;
+
+    public TestFiles() throws IOException {
+        directory = Files.createTempDirectory("jsearch-test");
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    public Path resolve(String name) {
+        return directory.resolve(name);
+    }
+
+    public Path write(String name, String content) throws IOException {
+        return Files.writeString(directory.resolve(name), content);
+    }
+
+    public static String tickets(int count) {
+        // Json array of open tickets with the ids 1 to count
+        StringBuilder records = new StringBuilder("[");
+        for (int id = 1; id <= count; id++) {
+            records.append(id > 1 ? "," : "").append("{\"_id\": ").append(id).append(", \"status\": \"open\"}");
+        }
+        return records.append("]").toString();
+    }
+
+    @Override
+    public void close() throws IOException {
+        // Deepest paths first so each directory is empty by the time it's deleted
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -7,6 +7,7 @@ import org.json.simple.JSONObject;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
+import java.io.StringWriter;
 import java.util.List;
 
 
@@ -90,4 +91,52 @@ public class DisplayFormatterTest {
     void displayFormatterRendersComplexLayout() {
         Assertions.assertNotNull(displayFormatterCreatesComplexLayout().formatPage());
     }
+
+    @Test
+    void displayFormatterWritesSamePageAsItFormats() throws Exception {
+        DisplayFormatter display = displayFormatterCreatesComplexLayout();
+        StringWriter writer = new StringWriter();
+        display.writePage(writer);
+        Assertions.assertEquals(display.formatPage(), writer.toString());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void displayFormatterRendersPlainPageWithoutColours() {
+        page.put("testField", "test");
+        displayOrder = List.of("testField");
+        DisplayFormatter display = Assertions.assertDoesNotThrow(() -> new DisplayFormatter(page, displayOrder, false));
+        Assertions.assertEquals("\nTESTFIELD DETAILS\ntestField :: test\n\n", display.formatPage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void displayFormatterAddsRowsBeforeThePageIsFormatted() {
+        page.put("testField", "test");
+        displayOrder = List.of("testField");
+        DisplayFormatter display = Assertions.assertDoesNotThrow(() -> new DisplayFormatter(page, displayOrder, false));
+        display.addHeading("extra");
+        display.addDataRow("note", "added first");
+        display.addFooter();
+        Assertions.assertEquals("\nEXTRA\nnote :: added first\n\nTESTFIELD DETAILS\ntestField :: test\n\n",
+                display.formatPage());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void displayFormatterWritesRowsAddedBeforeAndWhileThePageIsWritten() throws Exception {
+        // Each record of the array adds a row of its own as it's fetched, after the rows added before the page
+        DisplayFormatter[] display = new DisplayFormatter[1];
+        JSONObject record = new JSONObject();
+        record.put("testField", "test");
+        page.put("records", (Iterable<JSONObject>) () -> List.of(record).stream().peek(fetched ->
+                display[0].addDataRow("note", "fetched")).iterator());
+        displayOrder = List.of("records");
+        display[0] = Assertions.assertDoesNotThrow(() -> new DisplayFormatter(page, displayOrder, false));
+        display[0].addDataRow("note", "added first");
+        StringWriter writer = new StringWriter();
+        display[0].writePage(writer);
+        Assertions.assertEquals("\nnote :: added first\nRECORDS DETAILS\nnote :: fetched\nRECORDS 1\n" +
+                "testField :: test\n\n\n", writer.toString());
+    }
 }
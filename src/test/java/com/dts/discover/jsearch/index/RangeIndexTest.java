@@ -0,0 +1,90 @@
+package com.dts.discover.jsearch.index;
+
+import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.config.TestFiles;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.exception.DataNotFoundException;
+import com.dts.discover.jsearch.exception.InvalidQueryException;
+import com.dts.discover.jsearch.parser.GenericParser;
+import com.dts.discover.jsearch.parser.Query;
+import com.dts.discover.jsearch.parser.SearchPage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class RangeIndexTest {
+
+    private static GenericParser testDataParser;
+
+    @BeforeAll
+    public static void init() throws DataLoadException {
+        testDataParser = new GenericParser(TestConfig.TEST_FILE_URL);
+    }
+
+    private TestFiles files;
+
+    @BeforeEach
+    void createFiles() throws Exception {
+        files = new TestFiles();
+    }
+
+    @AfterEach
+    void deleteFiles() throws Exception {
+        files.close();
+    }
+
+    @Test
+    void rangeQueryMatchesTimestampsAndNumbersWithinTheBounds() throws Exception {
+        Path dataFile = files.resolve("range.json");
+        Files.writeString(dataFile, "[{\"_id\": 1, \"created_at\": \"2016-03-31T23:59:59 -00:00\"}," +
+                "{\"_id\": 2, \"created_at\": \"2016-04-28T11:19:34 -10:00\"}," +
+                "{\"_id\": 30, \"created_at\": \"2016-04-30T23:00:00 -10:00\"}," +
+                "{\"_id\": 4, \"created_at\": \"2016-04-01T00:00:00 +00:00\"}]");
+        GenericParser parser = new GenericParser(dataFile.toString());
+        SearchPage page = parser.search(Query.parse("created_at>=2016-04-01 and created_at<2016-05-01"), 0,
+                GenericParser.UNLIMITED);
+        // The bounds on the same key make up one range served from the index, the offsets are taken in to account
+        Assertions.assertArrayEquals(new int[]{1, 3}, page.getOrdinals());
+        Assertions.assertEquals(2, page.getScanned());
+        Assertions.assertArrayEquals(new int[]{1, 3}, parser.search(Query.parse("_id>1 and _id<=4"), 0,
+                GenericParser.UNLIMITED).getOrdinals());
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3}, parser.search(Query.parse("created_at<now"), 0,
+                GenericParser.UNLIMITED).getOrdinals());
+        Assertions.assertEquals("_id>\"1\" and _id<=\"4\"", Query.parse("_id>1 and _id<=4").toString());
+    }
+
+    @Test
+    void rangeQueryIndexesKeysWithNullOrEmptyValues() throws Exception {
+        Path dataFile = files.resolve("sparse.json");
+        Files.writeString(dataFile, "[{\"_id\": 1, \"due_at\": \"2016-04-02T10:00:00 +00:00\"}," +
+                "{\"_id\": 2, \"due_at\": null}," +
+                "{\"_id\": 3, \"due_at\": \"\"}," +
+                "{\"_id\": 4}," +
+                "{\"_id\": 5, \"due_at\": \"2016-04-20T10:00:00 +00:00\"}]");
+        GenericParser parser = new GenericParser(dataFile.toString());
+        SearchPage page = parser.search(Query.parse("due_at>=2016-04-01 and due_at<2016-05-01"), 0,
+                GenericParser.UNLIMITED);
+        // Served from the index rather than scanned, the records without a due date never match
+        Assertions.assertArrayEquals(new int[]{0, 4}, page.getOrdinals());
+        Assertions.assertEquals(2, page.getScanned());
+        Assertions.assertArrayEquals(new int[]{0, 1}, parser.search(Query.parse("due_at<2016-04-10 or _id=2"), 0,
+                GenericParser.UNLIMITED).getOrdinals());
+    }
+
+    @Test
+    void rangeQueryRejectsKeysAndBoundsOfOtherTypes() throws Exception {
+        Assertions.assertArrayEquals(new int[]{2, 3}, testDataParser.search(Query.parse("_id>2 or _id>3"), 0,
+                GenericParser.UNLIMITED).getOrdinals());
+        Assertions.assertThrows(InvalidQueryException.class, () ->
+                testDataParser.search(Query.parse("name>jon"), 0, GenericParser.UNLIMITED));
+        Assertions.assertThrows(InvalidQueryException.class, () ->
+                testDataParser.search(Query.parse("_id>=2016-04-01"), 0, GenericParser.UNLIMITED));
+        Assertions.assertThrows(DataNotFoundException.class, () ->
+                testDataParser.search(Query.parse("_id>=2 and _id<2"), 0, GenericParser.UNLIMITED));
+    }
+}
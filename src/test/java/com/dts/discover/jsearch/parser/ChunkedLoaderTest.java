@@ -0,0 +1,47 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestFiles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+class ChunkedLoaderTest {
+
+    private TestFiles files;
+
+    @BeforeEach
+    void createFiles() throws Exception {
+        files = new TestFiles();
+    }
+
+    @AfterEach
+    void deleteFiles() throws Exception {
+        files.close();
+    }
+
+    @Test
+    void chunkedLoadMatchesLoadingInOneGo() throws Exception {
+        // Values holding the separators and brackets must not be taken as record boundaries
+        StringBuilder records = new StringBuilder("[");
+        for (int i = 0; i < 50; i++) {
+            records.append(i == 0 ? "" : ",\n").append("{\"_id\": ").append(i).append(", \"name\": \"Jon, \\\"the ")
+                    .append(i % 7).append("\\\" [Doe]}\", \"tags\": [\"a,b\", \"t").append(i % 3).append("\"]}");
+        }
+        Path dataFile = files.resolve("chunks.json");
+        Files.writeString(dataFile, records.append("]\n").toString());
+        Dataset whole = ChunkedLoader.parse(new Dataset(0), Files.newInputStream(dataFile)).seal();
+        Dataset chunked = new ChunkedLoader(64).load(new Dataset(0), List.of(dataFile)).seal();
+        Assertions.assertEquals(50, chunked.size());
+        for (int ordinal = 0; ordinal < whole.size(); ordinal++) {
+            Assertions.assertEquals(whole.getObj(ordinal), chunked.getObj(ordinal));
+        }
+        Query query = Query.parse("tags=t1 and name~\"the 3\"");
+        Assertions.assertArrayEquals(whole.search(query, 0, GenericParser.UNLIMITED).getOrdinals(),
+                chunked.search(query, 0, GenericParser.UNLIMITED).getOrdinals());
+    }
+}
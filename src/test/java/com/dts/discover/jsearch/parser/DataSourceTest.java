@@ -0,0 +1,46 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestFiles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class DataSourceTest {
+
+    private TestFiles files;
+
+    @BeforeEach
+    void createFiles() throws Exception {
+        files = new TestFiles();
+    }
+
+    @AfterEach
+    void deleteFiles() throws Exception {
+        files.close();
+    }
+
+    @Test
+    void loadReadsEveryShardOfADirectoryOrGlob() throws Exception {
+        Path directory = files.getDirectory();
+        Files.writeString(directory.resolve("part-1.ndjson"), "{\"_id\": 1, \"name\": \"Jon Doe\"}\n\n" +
+                "{\"_id\": 2, \"name\": \"Jane Doe\"}\n");
+        Files.writeString(directory.resolve("part-2.json"), "[{\"_id\": 3, \"name\": \"Jon Citizen\"}]");
+        Files.writeString(directory.resolve("notes.txt"), "not data");
+        GenericParser parser = new GenericParser(directory.toString());
+        Assertions.assertEquals(3, parser.size());
+        Assertions.assertEquals(3L, parser.getDataset().getObj(2).get("_id"));
+        Assertions.assertNull(parser.getSourcePath());
+        Assertions.assertTrue(parser.isSourceFile(directory.resolve("part-3.ndjson")));
+        Assertions.assertFalse(parser.isSourceFile(directory.resolve("notes.txt")));
+        GenericParser glob = new GenericParser(directory.resolve("part-*.ndjson").toString());
+        Assertions.assertEquals(2, glob.size());
+        Files.writeString(directory.resolve("part-3.ndjson"), "{\"_id\": 4, \"name\": \"Jane Citizen\"}");
+        Assertions.assertTrue(glob.reload());
+        Assertions.assertEquals(3, glob.size());
+        Assertions.assertEquals(1, glob.getMatchingObj("name", "citizen").size());
+    }
+}
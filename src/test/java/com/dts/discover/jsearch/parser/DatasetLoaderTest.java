@@ -0,0 +1,45 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+
+class DatasetLoaderTest {
+
+    @Test
+    void dataSetIsOnlyLoadedOnceWhenFirstAskedFor() throws Exception {
+        // Tasks are held back until run by hand so the loading state can be seen
+        Queue<Runnable> tasks = new ArrayDeque<>();
+        DatasetLoader loader = new DatasetLoader("users", TestConfig.TEST_FILE_URL, null, tasks::add);
+        Assertions.assertEquals("not loaded", loader.getStatus());
+        loader.start();
+        loader.start();
+        Assertions.assertEquals(1, tasks.size());
+        Assertions.assertEquals("loading", loader.getStatus());
+        tasks.poll().run();
+        Assertions.assertEquals("ready", loader.getStatus());
+        Assertions.assertSame(loader.get(), loader.get());
+        Assertions.assertTrue(tasks.isEmpty());
+    }
+
+    @Test
+    void getStartsTheLoadingWhenLazy() throws Exception {
+        DatasetLoader loader = new DatasetLoader("users", TestConfig.TEST_FILE_URL, null, Runnable::run);
+        Assertions.assertTrue(loader.get().size() > 0);
+        Assertions.assertEquals("ready", loader.getStatus());
+        Assertions.assertEquals("users", loader.getName());
+    }
+
+    @Test
+    void failedLoadIsReportedEachTimeItsAskedFor() {
+        DatasetLoader loader = new DatasetLoader("users", TestConfig.INVALID_FILE_URL, null, Runnable::run);
+        Assertions.assertThrows(DataLoadException.class, loader::get);
+        Assertions.assertEquals("failed", loader.getStatus());
+        Exception exception = Assertions.assertThrows(DataLoadException.class, loader::get);
+        Assertions.assertEquals("Unable to load the specified data due to invalid file format", exception.getMessage());
+    }
+}
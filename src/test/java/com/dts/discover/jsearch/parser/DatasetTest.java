@@ -0,0 +1,64 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestFiles;
+import com.dts.discover.jsearch.store.SegmentStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.stream.Stream;
+
+class DatasetTest {
+
+    private TestFiles files;
+
+    @BeforeEach
+    void createFiles() throws Exception {
+        files = new TestFiles();
+    }
+
+    @AfterEach
+    void deleteFiles() throws Exception {
+        files.close();
+    }
+
+    @Test
+    void segmentsHoldKeysWithManyDistinctValues() throws Exception {
+        // Names move to the segments part way through each chunk, statuses never have enough values to
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < 40; i++) {
+            records.append("{\"_id\": ").append(i).append(", \"name\": \"Jon ").append(i)
+                    .append("\", \"status\": \"").append(i % 2 == 0 ? "open" : "closed")
+                    .append("\", \"tags\": [\"t").append(i % 3).append("\"]}\n");
+        }
+        Path directory = files.getDirectory();
+        Path dataFile = directory.resolve("records.ndjson");
+        Files.writeString(dataFile, records.toString());
+        Dataset heap = ChunkedLoader.parse(new Dataset(0), Files.newInputStream(dataFile)).seal();
+        SegmentStore segments = SegmentStore.create(directory.resolve("segments"), 8);
+        Dataset segmented = new ChunkedLoader(200).load(new Dataset(0, segments), List.of(dataFile)).seal();
+        for (int ordinal = 0; ordinal < heap.size(); ordinal++) {
+            Assertions.assertEquals(heap.getObj(ordinal), segmented.getObj(ordinal));
+        }
+        Query query = Query.parse("name~\"jon 1\" and status=closed or _id>=35");
+        Assertions.assertArrayEquals(heap.search(query, 0, GenericParser.UNLIMITED).getOrdinals(),
+                segmented.search(query, 0, GenericParser.UNLIMITED).getOrdinals());
+        // Whole values of keys held in segments are looked up by their hash rather than scanned
+        for (String lookup : List.of("_id=7", "name=\"JON 12\"", "_id=any(3,35,99) or name=\"jon 1\"")) {
+            Assertions.assertArrayEquals(heap.search(Query.parse(lookup), 0, GenericParser.UNLIMITED).getOrdinals(),
+                    segmented.search(Query.parse(lookup), 0, GenericParser.UNLIMITED).getOrdinals());
+        }
+        Assertions.assertEquals(2, segmented.getStats("status").getDistinctValues());
+        Assertions.assertEquals(40, segmented.getStats("name").getDistinctValues());
+        Assertions.assertTrue(segmented.getStats("name").isEstimated());
+        Assertions.assertFalse(segmented.getStats("status").isEstimated());
+        segmented.deleteSegments();
+        try (Stream<Path> left = Files.list(directory.resolve("segments"))) {
+            Assertions.assertEquals(0, left.count());
+        }
+    }
+}
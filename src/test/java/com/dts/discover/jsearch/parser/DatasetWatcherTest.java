@@ -0,0 +1,42 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.config.TestFiles;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DatasetWatcherTest {
+
+    private static void awaitSize(GenericParser parser, int size) throws InterruptedException {
+        // Changes are picked up once the directory has been quiet for a moment
+        for (int i = 0; i < 200 && parser.size() != size; i++) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(size, parser.size());
+    }
+
+    @Test
+    void dataSetIsReloadedWhenItsFileChanges() throws Exception {
+        try (TestFiles files = new TestFiles(); DatasetWatcher watcher = new DatasetWatcher()) {
+            String file = files.write("tickets.json", TestFiles.tickets(2)).toString();
+            GenericParser parser = new DatasetLoader("tickets", file, null, Runnable::run, watcher).get();
+            Assertions.assertEquals(2, parser.size());
+            files.write("tickets.json", TestFiles.tickets(5));
+            awaitSize(parser, 5);
+            // Other files of the same directory leave the data set alone
+            long version = parser.getDataset().getVersion();
+            files.write("other.json", TestFiles.tickets(1));
+            Thread.sleep(1000);
+            Assertions.assertEquals(version, parser.getDataset().getVersion());
+        }
+    }
+
+    @Test
+    void dataFromTheClassPathIsNotWatched() throws Exception {
+        try (DatasetWatcher watcher = new DatasetWatcher()) {
+            GenericParser parser = new GenericParser(TestConfig.TEST_FILE_URL);
+            watcher.watch(parser);
+            Assertions.assertFalse(parser.reload());
+        }
+    }
+}
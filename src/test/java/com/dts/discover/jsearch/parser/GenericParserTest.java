@@ -1,14 +1,22 @@
 package com.dts.discover.jsearch.parser;
 
 import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.config.TestFiles;
 import com.dts.discover.jsearch.exception.DataLoadException;
 import com.dts.discover.jsearch.exception.DataNotFoundException;
 import com.dts.discover.jsearch.exception.KeyNotFoundException;
 import org.json.simple.JSONArray;
+import org.json.simple.JSONObject;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
 
 class GenericParserTest {
 
@@ -168,4 +176,141 @@ class GenericParserTest {
     void checkKeyReturnsTrueOnValidKey() {
         Assertions.assertTrue(testDataParser.checkKey("_id"));
     }
+
+    @Test
+    void parserReturnsExactMatchFromIndex() {
+        JSONArray jsonArray = Assertions.assertDoesNotThrow(() ->
+                testDataParser.getMatchingObj("name", "jon doe", MatchMode.EXACT)
+        );
+        Assertions.assertEquals(1, jsonArray.size());
+    }
+
+    @Test
+    void parserExactMatchDoesNotReturnPartialValues() {
+        String searchKey = "name";
+        String searchVal = "jon";
+        Exception exception = Assertions.assertThrows(DataNotFoundException.class, () ->
+                testDataParser.getMatchingObj(searchKey, searchVal, MatchMode.EXACT));
+        Assertions.assertEquals(exception.getMessage(),"No data found for field : \"" + searchKey + "\" with provided value \"" + searchVal + "\"");
+    }
+
+    @Test
+    void parserExactMatchOnNumericIdentifier() {
+        JSONArray jsonArray = Assertions.assertDoesNotThrow(() ->
+                testDataParser.getMatchingObj("_id", "3", MatchMode.EXACT)
+        );
+        Assertions.assertEquals(1, jsonArray.size());
+        Assertions.assertEquals("Jane Citizen", ((JSONObject) jsonArray.get(0)).get("name"));
+    }
+
+    @Test
+    void parserPartialMatchSpanningWordsUsesTrigrams() {
+        JSONArray jsonArray = Assertions.assertDoesNotThrow(() ->
+                testDataParser.getMatchingObj("name", "n citi")
+        );
+        Assertions.assertEquals(1, jsonArray.size());
+        Assertions.assertEquals("Jon Citizen", ((JSONObject) jsonArray.get(0)).get("name"));
+    }
+
+    @Test
+    void loadDataFromFileSystemPath() {
+        GenericParser fileParser = Assertions.assertDoesNotThrow(() ->
+                new GenericParser("src/test/resources/" + TestConfig.TEST_FILE_URL));
+        Assertions.assertEquals(4, fileParser.size());
+        Assertions.assertEquals(testDataParser.getKeyString(), fileParser.getKeyString());
+    }
+
+    @Test
+    void parserReturnsResultsPageByPage() throws Exception {
+        SearchPage first = testDataParser.search("multi", "twenty five", MatchMode.CONTAINS, 0, 3);
+        Assertions.assertArrayEquals(new int[]{0, 1, 2}, first.getOrdinals());
+        Assertions.assertTrue(first.hasMore());
+        SearchPage second = testDataParser.search("multi", "twenty five", MatchMode.CONTAINS, first.getNextCursor(), 3);
+        Assertions.assertArrayEquals(new int[]{3}, second.getOrdinals());
+        Assertions.assertFalse(second.hasMore());
+    }
+
+    @Test
+    void parserStopsScanningOnceThePageIsFull() throws Exception {
+        SearchPage page = testDataParser.search("name", "", MatchMode.CONTAINS, 0, 1);
+        Assertions.assertEquals(1, page.getOrdinals().length);
+        Assertions.assertEquals(4, page.getScanned());
+        SearchPage firstOnly = testDataParser.search("note", "note", MatchMode.CONTAINS, 0, 1);
+        Assertions.assertEquals(2, firstOnly.getScanned());
+        Assertions.assertEquals(1, firstOnly.getNextCursor());
+    }
+
+    @Test
+    void parserAnswersRepeatedSearchFromCache() throws Exception {
+        GenericParser parser = new GenericParser(TestConfig.TEST_FILE_URL);
+        JSONArray first = parser.getMatchingObj("location", "syd");
+        JSONArray second = parser.getMatchingObj("location", "SYD");
+        Assertions.assertEquals(first, second);
+        Assertions.assertEquals(1, parser.getMetrics().getCount("cache misses"));
+        Assertions.assertEquals(1, parser.getMetrics().getCount("cache hits"));
+    }
+
+    @Test
+    void reloadAddsAppendedRecordsAndKeepsThePreviousVersion() throws Exception {
+        try (TestFiles files = new TestFiles()) {
+            Path dataFile = files.resolve("reload.json");
+            Files.writeString(dataFile, "[\n  {\"_id\": 1, \"name\": \"Jon Doe\"}\n]\n", StandardCharsets.ISO_8859_1);
+            GenericParser parser = new GenericParser(dataFile.toString());
+            Dataset previous = parser.getDataset();
+            Assertions.assertFalse(parser.reload());
+            // The trigrams of the names are worked out by this search and have to take in the appended records
+            Assertions.assertEquals(1, parser.getMatchingObj("name", "doe").size());
+            // Replace the closing bracket with another record the same way a writer appending to the file would
+            String content = Files.readString(dataFile, StandardCharsets.ISO_8859_1);
+            Files.writeString(dataFile, content.substring(0, content.lastIndexOf(']')) +
+                    ",\n  {\"_id\": 2, \"name\": \"Jane Doe\"}\n]\n", StandardCharsets.ISO_8859_1);
+            Assertions.assertTrue(parser.reload());
+            Assertions.assertEquals(2, parser.size());
+            Assertions.assertEquals(2, parser.getMatchingObj("name", "doe").size());
+            Assertions.assertEquals(1, parser.getMetrics().timer("reload appended").getCount());
+            Assertions.assertEquals(1, previous.size());
+            Assertions.assertArrayEquals(new int[]{0}, parser.search(previous, "name", "doe", MatchMode.CONTAINS, 0,
+                    GenericParser.UNLIMITED).getOrdinals());
+        }
+    }
+
+    @Test
+    void reloadParsesTheWholeFileWhenRecordsChange() throws Exception {
+        try (TestFiles files = new TestFiles()) {
+            Path dataFile = files.resolve("reload.json");
+            Files.writeString(dataFile, "[{\"_id\": 1, \"name\": \"Jon Doe\"}, {\"_id\": 2, \"name\": \"Jane Doe\"}]");
+            GenericParser parser = new GenericParser(dataFile.toString());
+            Assertions.assertEquals(2, parser.getMatchingObj("name", "doe").size());
+            Files.writeString(dataFile, "[{\"_id\": 1, \"name\": \"Jon Citizen\"}]",
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            Assertions.assertTrue(parser.reload());
+            Assertions.assertEquals(1, parser.getMetrics().timer("reload").getCount());
+            Assertions.assertThrows(DataNotFoundException.class, () -> parser.getMatchingObj("name", "doe"));
+            Assertions.assertEquals(1, parser.getMatchingObj("name", "citizen").size());
+        }
+    }
+
+    @Test
+    void arrayValuesAreMatchedElementByElement() throws Exception {
+        Assertions.assertEquals(4, testDataParser.getMatchingObj("multi", "two", MatchMode.EXACT).size());
+        // The Json rendering of the array isn't searched, so quotes and commas between the elements don't match
+        Assertions.assertThrows(DataNotFoundException.class, () -> testDataParser.getMatchingObj("multi", "\",\""));
+        Assertions.assertThrows(DataNotFoundException.class, () -> testDataParser.getMatchingObj("multi", "e\",\"t"));
+        Assertions.assertEquals(4, testDataParser.getMatchingObj("multi", "twenty").size());
+    }
+
+    @Test
+    void keysAndValuesCompleteToTheMostCommonFirst() throws Exception {
+        Assertions.assertEquals(List.of("name", "note"), testDataParser.completeKey("N", 10));
+        Assertions.assertEquals(List.of("Syd", "Mel"), testDataParser.completeValue("location", "", 10));
+        Assertions.assertEquals(List.of("three", "twenty five"), testDataParser.completeValue("multi", "t", 2));
+        Assertions.assertEquals(List.of("twenty five", "two"), testDataParser.completeValue("multi", "tw", 20));
+        Assertions.assertEquals(List.of(), testDataParser.completeValue("location", "x", 10));
+        // Prefixes too short for trigrams are looked up in the trie of the values
+        Assertions.assertArrayEquals(new int[]{1, 2}, testDataParser.search(Query.parse("location^=s"), 0,
+                GenericParser.UNLIMITED).getOrdinals());
+        Assertions.assertArrayEquals(new int[]{0}, testDataParser.search(Query.parse("multi^=tw and location^=m"), 0,
+                GenericParser.UNLIMITED).getOrdinals());
+    }
+
 }
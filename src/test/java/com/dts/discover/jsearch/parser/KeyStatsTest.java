@@ -0,0 +1,37 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.util.Collection;
+
+class KeyStatsTest {
+
+    private static GenericParser testDataParser;
+
+    @BeforeAll
+    public static void init() throws DataLoadException {
+        testDataParser = new GenericParser(TestConfig.TEST_FILE_URL);
+    }
+
+    @Test
+    void catalogDescribesEveryKey() {
+        Collection<KeyStats> catalog = testDataParser.getCatalog();
+        Assertions.assertEquals(5, catalog.size());
+        KeyStats location = testDataParser.getDataset().getStats("location");
+        Assertions.assertEquals("string", location.getType());
+        Assertions.assertEquals(3, location.getPresent());
+        Assertions.assertEquals(2, location.getDistinctValues());
+        KeyStats name = testDataParser.getDataset().getStats("name");
+        Assertions.assertEquals(1, name.getEmpty());
+        Assertions.assertEquals(0, name.getNulls());
+        KeyStats multi = testDataParser.getDataset().getStats("multi");
+        Assertions.assertEquals("array", multi.getType());
+        Assertions.assertEquals(4, multi.getDistinctValues());
+        Assertions.assertEquals(4, multi.getDistinctElements());
+        Assertions.assertEquals("number", testDataParser.getDataset().getStats("_id").getType());
+    }
+}
@@ -0,0 +1,92 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.stats.Metrics;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class QueryCacheTest {
+
+    private final Metrics metrics = new Metrics("test");
+
+    private static QueryCache.Key key(int cursor) {
+        return new QueryCache.Key(1, "status", "OPEN", "exact", cursor, 10);
+    }
+
+    private static SearchPage page(int records) {
+        return new SearchPage(new Dataset(0), new int[records], -1, records);
+    }
+
+    @Test
+    void leastRecentlyUsedPagesAreEvictedPastTheEntryLimit() {
+        QueryCache cache = new QueryCache(2, 1024 * 1024, metrics);
+        cache.put(key(0), page(1));
+        cache.put(key(1), page(1));
+        Assertions.assertNotNull(cache.get(key(0)));
+        cache.put(key(2), page(1));
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNull(cache.get(key(1)));
+        Assertions.assertNotNull(cache.get(key(0)));
+        Assertions.assertNotNull(cache.get(key(2)));
+        Assertions.assertEquals(1, metrics.getCount("cache evictions"));
+        Assertions.assertEquals(3, metrics.getCount("cache hits"));
+        Assertions.assertEquals(1, metrics.getCount("cache misses"));
+    }
+
+    @Test
+    void pagesAreEvictedPastTheByteLimit() {
+        // Each page of 100 records weighs 560 bytes with the overhead of its entry
+        QueryCache cache = new QueryCache(100, 1200, metrics);
+        cache.put(key(0), page(100));
+        cache.put(key(1), page(100));
+        Assertions.assertEquals(2, cache.size());
+        cache.put(key(2), page(100));
+        Assertions.assertEquals(2, cache.size());
+        Assertions.assertNull(cache.get(key(0)));
+        // Replacing a page weighs the new one in place of the old one
+        cache.put(key(2), page(10));
+        cache.put(key(3), page(10));
+        Assertions.assertEquals(3, cache.size());
+        Assertions.assertEquals(1, metrics.getCount("cache evictions"));
+    }
+
+    @Test
+    void pagesTooLargeForTheCacheAreNotKept() {
+        QueryCache cache = new QueryCache(100, 1000, metrics);
+        cache.put(key(0), page(10));
+        cache.put(key(1), page(1000));
+        Assertions.assertNull(cache.get(key(1)));
+        Assertions.assertNotNull(cache.get(key(0)));
+        QueryCache disabled = new QueryCache(0, 1000, metrics);
+        disabled.put(key(0), page(1));
+        Assertions.assertEquals(0, disabled.size());
+        cache.clear();
+        Assertions.assertEquals(0, cache.size());
+    }
+
+    @Test
+    void queriesWrittenTheSameWayHaveTheirOwnKeys() {
+        // A quote in a value and a value of [] used to make these read the same as the query next to them
+        Query quoted = Query.where("subject", "a\" or status=\"open", MatchMode.EXACT);
+        Query twoGroups = Query.where("subject", "a", MatchMode.EXACT).or("status", "open", MatchMode.EXACT);
+        Assertions.assertEquals(quoted.toString(), twoGroups.toString());
+        Assertions.assertNotEquals(new QueryCache.Key(1, quoted, 0, 10), new QueryCache.Key(1, twoGroups, 0, 10));
+        Query empty = Query.where("tags", "", MatchMode.EXACT);
+        Query brackets = Query.where("tags", "[]", MatchMode.EXACT);
+        Assertions.assertNotEquals(new QueryCache.Key(1, empty, 0, 10), new QueryCache.Key(1, brackets, 0, 10));
+    }
+
+    @Test
+    void equalQueriesShareTheirKey() {
+        QueryCache.Key key = new QueryCache.Key(1, Query.where("status", "open", MatchMode.EXACT)
+                .and("priority", "high", MatchMode.EXACT), 0, 10);
+        Query query = Query.where("status", "open", MatchMode.EXACT).and("priority", "high", MatchMode.EXACT);
+        Assertions.assertEquals(key, new QueryCache.Key(1, query, 0, 10));
+        Assertions.assertEquals(key.hashCode(), new QueryCache.Key(1, query, 0, 10).hashCode());
+        Assertions.assertNotEquals(key, new QueryCache.Key(2, query, 0, 10));
+        Assertions.assertNotEquals(key, new QueryCache.Key(1, query, 10, 10));
+        // Adding to a query once it's been searched doesn't change the key it was cached under
+        QueryCache.Key searched = new QueryCache.Key(1, query, 0, 10);
+        query.or("status", "closed", MatchMode.EXACT);
+        Assertions.assertEquals(key, searched);
+    }
+}
@@ -0,0 +1,73 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.exception.DataLoadException;
+import com.dts.discover.jsearch.exception.DataNotFoundException;
+import com.dts.discover.jsearch.exception.InvalidQueryException;
+import com.dts.discover.jsearch.exception.KeyNotFoundException;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class QueryTest {
+
+    private static GenericParser testDataParser;
+
+    @BeforeAll
+    public static void init() throws DataLoadException {
+        testDataParser = new GenericParser(TestConfig.TEST_FILE_URL);
+    }
+
+    @Test
+    void queryMatchesEveryConditionOfAGroup() throws Exception {
+        SearchPage page = testDataParser.search(Query.parse("location=syd and name~citizen"), 0, GenericParser.UNLIMITED);
+        Assertions.assertArrayEquals(new int[]{2}, page.getOrdinals());
+        // Both conditions are answered from the indexes so only the intersection is looked at
+        Assertions.assertEquals(1, page.getScanned());
+    }
+
+    @Test
+    void queryMatchesAnyOfTheGroups() throws Exception {
+        Query query = Query.where("_id", "1", MatchMode.EXACT).or("name", "jon", MatchMode.CONTAINS)
+                .and("location", "", MatchMode.EXACT);
+        Assertions.assertArrayEquals(new int[]{0, 3}, testDataParser.search(query, 0, GenericParser.UNLIMITED).getOrdinals());
+        Assertions.assertEquals("_id=\"1\" or name~\"jon\" and location=[]", query.toString());
+    }
+
+    @Test
+    void queryRejectsInvalidSyntaxAndUnknownKeys() {
+        Assertions.assertThrows(InvalidQueryException.class, () -> Query.parse("location=syd and"));
+        Assertions.assertThrows(InvalidQueryException.class, () -> Query.parse("location=syd name=jon"));
+        Assertions.assertThrows(InvalidQueryException.class, () -> Query.parse("name~\"jon"));
+        Assertions.assertThrows(KeyNotFoundException.class, () ->
+                testDataParser.search(Query.parse("location=syd or nokey=1"), 0, GenericParser.UNLIMITED));
+        Assertions.assertThrows(DataNotFoundException.class, () ->
+                testDataParser.search(Query.parse("location=mel AND note~\"note 2\""), 0, GenericParser.UNLIMITED));
+    }
+
+    @Test
+    void queryMatchesAnyOrAllOfASetOfValues() throws Exception {
+        Query all = Query.parse("multi=all(one,\"twenty five\")");
+        Assertions.assertArrayEquals(new int[]{0, 1, 2, 3}, testDataParser.search(all, 0, GenericParser.UNLIMITED).getOrdinals());
+        Assertions.assertEquals("multi=all(\"one\",\"twenty five\")", all.toString());
+        Assertions.assertThrows(DataNotFoundException.class, () ->
+                testDataParser.search(Query.parse("multi=all(one,four)"), 0, GenericParser.UNLIMITED));
+        SearchPage any = testDataParser.search(Query.parse("name=any(\"jon doe\",\"jane citizen\",nobody)"), 0,
+                GenericParser.UNLIMITED);
+        Assertions.assertArrayEquals(new int[]{1, 2}, any.getOrdinals());
+        Assertions.assertEquals(2, any.getScanned());
+        Assertions.assertThrows(InvalidQueryException.class, () -> Query.parse("multi=any(one,,two)"));
+    }
+
+    @Test
+    void queryMatchesTheStartOrEndOfValues() throws Exception {
+        Assertions.assertArrayEquals(new int[]{1, 3}, testDataParser.search(Query.parse("name^=jon"), 0,
+                GenericParser.UNLIMITED).getOrdinals());
+        SearchPage page = testDataParser.search(Query.parse("name$=citizen and multi^=twe"), 0, GenericParser.UNLIMITED);
+        Assertions.assertArrayEquals(new int[]{2, 3}, page.getOrdinals());
+        Assertions.assertEquals("name$=\"citizen\"", Query.parse("name$=citizen").toString());
+        Assertions.assertThrows(DataNotFoundException.class, () ->
+                testDataParser.search(Query.parse("name^=doe"), 0, GenericParser.UNLIMITED));
+        Assertions.assertThrows(InvalidQueryException.class, () -> Query.parse("name^doe"));
+    }
+}
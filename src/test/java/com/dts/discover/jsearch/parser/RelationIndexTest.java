@@ -0,0 +1,52 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestFiles;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class RelationIndexTest {
+
+    private TestFiles files;
+
+    @BeforeEach
+    void createFiles() throws Exception {
+        files = new TestFiles();
+    }
+
+    @AfterEach
+    void deleteFiles() throws Exception {
+        files.close();
+    }
+
+    @Test
+    void relationIndexJoinsOnWholeIds() throws Exception {
+        // Organisation 11 mustn't pick up the tickets of organisations 110 to 119
+        StringBuilder orgRecords = new StringBuilder();
+        StringBuilder ticketRecords = new StringBuilder();
+        for (int id = 10; id < 120; id++) {
+            orgRecords.append("{\"_id\": ").append(id).append("}\n");
+            ticketRecords.append("{\"_id\": \"t").append(id).append("\", \"organization_id\": ").append(id)
+                    .append("}\n");
+        }
+        ticketRecords.append("{\"_id\": \"t11b\", \"organization_id\": 11}\n");
+        ticketRecords.append("{\"_id\": \"t999\", \"organization_id\": 999}\n");
+        Path directory = files.getDirectory();
+        Path orgFile = directory.resolve("orgs.ndjson");
+        Path ticketFile = directory.resolve("tickets.ndjson");
+        Files.writeString(orgFile, orgRecords.toString());
+        Files.writeString(ticketFile, ticketRecords.toString());
+        Dataset orgs = ChunkedLoader.parse(new Dataset(0), Files.newInputStream(orgFile)).seal();
+        Dataset tickets = ChunkedLoader.parse(new Dataset(0), Files.newInputStream(ticketFile)).seal();
+        RelationIndex ticketOrgs = new RelationIndex(tickets, "organization_id", orgs, "_id");
+        Assertions.assertArrayEquals(new int[]{1, 110}, ticketOrgs.childrenOf(1));
+        Assertions.assertEquals(1, ticketOrgs.parentOf(110));
+        Assertions.assertEquals(100, ticketOrgs.parentOf(100));
+        Assertions.assertEquals(RelationIndex.NONE, ticketOrgs.parentOf(111));
+        Assertions.assertTrue(ticketOrgs.joins(tickets, orgs));
+    }
+}
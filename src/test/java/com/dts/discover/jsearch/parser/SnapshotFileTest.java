@@ -0,0 +1,58 @@
+package com.dts.discover.jsearch.parser;
+
+import com.dts.discover.jsearch.config.TestConfig;
+import com.dts.discover.jsearch.config.TestFiles;
+import com.dts.discover.jsearch.store.SnapshotIO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+class SnapshotFileTest {
+
+    private TestFiles files;
+
+    @BeforeEach
+    void createFiles() throws Exception {
+        files = new TestFiles();
+    }
+
+    @AfterEach
+    void deleteFiles() throws Exception {
+        files.close();
+    }
+
+    @Test
+    void loadDataFromSnapshotMatchesParsedData() throws Exception {
+        Path snapshotDir = files.getDirectory();
+        GenericParser parsed = new GenericParser(TestConfig.TEST_FILE_URL, snapshotDir);
+        Assertions.assertTrue(Files.exists(snapshotDir.resolve(TestConfig.TEST_FILE_URL + ".snapshot")));
+        GenericParser restored = new GenericParser(TestConfig.TEST_FILE_URL, snapshotDir);
+        Assertions.assertEquals(parsed.getKeyString(), restored.getKeyString());
+        Assertions.assertEquals(parsed.getMatchingObj("multi", "twenty five"), restored.getMatchingObj("multi", "twenty five"));
+        Assertions.assertEquals(parsed.getMatchingObj("_id", "2", MatchMode.EXACT), restored.getMatchingObj("_id", "2", MatchMode.EXACT));
+    }
+
+    @Test
+    void damagedSnapshotIsParsedAgain() throws Exception {
+        Path snapshotDir = files.getDirectory();
+        GenericParser parsed = new GenericParser(TestConfig.TEST_FILE_URL, snapshotDir);
+        Path snapshot = snapshotDir.resolve(TestConfig.TEST_FILE_URL + ".snapshot");
+        // Turn the first length of the body in to one far bigger than the file
+        byte[] content = Files.readAllBytes(snapshot);
+        for (int i = 40; i < 44; i++) {
+            content[i] = 0x7F;
+        }
+        Files.write(snapshot, content);
+        GenericParser restored = new GenericParser(TestConfig.TEST_FILE_URL, snapshotDir);
+        Assertions.assertEquals(parsed.getKeyString(), restored.getKeyString());
+        Assertions.assertEquals(parsed.getMatchingObj("_id", "2", MatchMode.EXACT), restored.getMatchingObj("_id", "2", MatchMode.EXACT));
+        // Lengths are checked against what is left of the snapshot before anything is allocated
+        Assertions.assertThrows(IllegalStateException.class, () ->
+                SnapshotIO.readInts(ByteBuffer.wrap(new byte[]{0x7F, 0x7F, 0x7F, 0x7F, 0, 0, 0, 0})));
+    }
+}
@@ -0,0 +1,21 @@
+package com.dts.discover.jsearch.parser;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ValueMatcherTest {
+
+    @Test
+    void eachModeMatchesItsPartOfTheValue() {
+        String value = "A NUISANCE IN KIRIBATI";
+        Assertions.assertTrue(ValueMatcher.compile(MatchMode.EXACT, value).matches(value));
+        Assertions.assertFalse(ValueMatcher.compile(MatchMode.EXACT, "A NUISANCE").matches(value));
+        Assertions.assertTrue(ValueMatcher.compile(MatchMode.PREFIX, "A NUISANCE").matches(value));
+        Assertions.assertFalse(ValueMatcher.compile(MatchMode.PREFIX, "KIRIBATI").matches(value));
+        Assertions.assertTrue(ValueMatcher.compile(MatchMode.SUFFIX, "KIRIBATI").matches(value));
+        Assertions.assertFalse(ValueMatcher.compile(MatchMode.SUFFIX, "A NUISANCE").matches(value));
+        Assertions.assertTrue(ValueMatcher.compile(MatchMode.CONTAINS, "SANCE IN").matches(value));
+        Assertions.assertFalse(ValueMatcher.compile(MatchMode.CONTAINS, "KIRIBATIS").matches(value));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> ValueMatcher.compile(MatchMode.AT_LEAST, "1"));
+    }
+}
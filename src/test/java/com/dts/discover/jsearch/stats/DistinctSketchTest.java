@@ -0,0 +1,29 @@
+package com.dts.discover.jsearch.stats;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class DistinctSketchTest {
+
+    @Test
+    void smallCountsAreExactAndRepeatsDontCount() {
+        DistinctSketch sketch = new DistinctSketch();
+        Assertions.assertEquals(0, sketch.estimate());
+        for (int i = 0; i < 3; i++) {
+            sketch.add("open");
+            sketch.add("closed");
+            sketch.add("pending");
+        }
+        Assertions.assertEquals(3, sketch.estimate());
+    }
+
+    @Test
+    void largeCountsAreWithinAFewPercent() {
+        DistinctSketch sketch = new DistinctSketch();
+        for (int i = 0; i < 500000; i++) {
+            sketch.add("ticket-" + i);
+            sketch.add("ticket-" + (i / 2));
+        }
+        Assertions.assertEquals(500000, sketch.estimate(), 500000 * 0.03);
+    }
+}
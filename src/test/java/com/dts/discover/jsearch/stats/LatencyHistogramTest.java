@@ -0,0 +1,36 @@
+package com.dts.discover.jsearch.stats;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+    @Test
+    void emptyHistogramReportsZero() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Assertions.assertEquals(0, histogram.getCount());
+        Assertions.assertEquals(0, histogram.getPercentile(99));
+    }
+
+    @Test
+    void percentilesAreWithinBucketPrecision() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        for (long value = 1; value <= 10000; value++) {
+            histogram.record(value * 1000);
+        }
+        Assertions.assertEquals(10000, histogram.getCount());
+        Assertions.assertEquals(10000000, histogram.getMax());
+        Assertions.assertEquals(5000000, histogram.getPercentile(50), 5000000 * 0.07);
+        Assertions.assertEquals(9900000, histogram.getPercentile(99), 9900000 * 0.07);
+        Assertions.assertTrue(histogram.getPercentile(50) <= histogram.getPercentile(95));
+    }
+
+    @Test
+    void bucketUpperBoundCoversValue() {
+        for (long value : new long[]{0, 1, 15, 16, 17, 1000, 123456789, Long.MAX_VALUE / 2}) {
+            int bucket = LatencyHistogram.bucket(value);
+            Assertions.assertTrue(LatencyHistogram.upperBound(bucket) >= value);
+            Assertions.assertTrue(bucket == 0 || LatencyHistogram.upperBound(bucket - 1) < value);
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package com.dts.discover.jsearch.store;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+class ColumnTest {
+
+    private static String description(int i) {
+        return "Ünïcode description number " + i + " which is long enough to be taken as text only ever displayed";
+    }
+
+    @Test
+    void shortValuesShareTheirCodes() {
+        Column column = new Column("status");
+        for (int i = 0; i < 2000; i++) {
+            column.set(i, i % 2 == 0 ? "open" : "closed");
+        }
+        column.compact();
+        Assertions.assertTrue(column.isDeduplicated());
+        Assertions.assertEquals(2, column.distinctValues());
+        Assertions.assertEquals(column.code(0), column.code(2));
+    }
+
+    @Test
+    void nearUniqueValuesDropTheDictionary() {
+        Column ids = new Column("_id");
+        for (int i = 0; i < 2000; i++) {
+            ids.set(i, "id-" + i);
+        }
+        Assertions.assertTrue(ids.isDeduplicated());
+        ids.compact();
+        Assertions.assertFalse(ids.isDeduplicated());
+        Column copy = ids.copy();
+        copy.set(2000, "id-7");
+        Assertions.assertEquals(2001, copy.distinctValues());
+        Assertions.assertEquals("id-7", copy.value(copy.code(2000)));
+        Assertions.assertEquals(Column.fold("id-7"), copy.folded(copy.code(7)));
+        Assertions.assertEquals(2000, ids.distinctValues());
+    }
+
+    @Test
+    void copiesShareTheDictionaryUntilTheyAddAValue() {
+        Column column = new Column("status");
+        column.set(0, "open");
+        column.set(1, "closed");
+        Column copy = column.copy();
+        Assertions.assertEquals(column.code(0), copy.set(2, "open"));
+        copy.set(3, "pending");
+        Assertions.assertEquals(copy.code(3), copy.set(4, "pending"));
+        // Adding to the copy leaves the column it was made from as it was
+        Assertions.assertEquals(2, column.distinctValues());
+        Assertions.assertEquals(2, column.set(2, "pending"));
+        Assertions.assertEquals(3, column.distinctValues());
+    }
+
+    @Test
+    void longTextIsPackedAndReadBackAsItWas() {
+        Column column = new Column("description");
+        for (int i = 0; i < 1500; i++) {
+            column.set(i, description(i % 1200));
+        }
+        Assertions.assertFalse(column.isDeduplicated());
+        for (int i = 0; i < 1500; i++) {
+            int code = column.code(i);
+            Assertions.assertEquals(description(i % 1200), column.value(code));
+            Assertions.assertEquals(Column.fold(description(i % 1200)), column.folded(code));
+        }
+        Assertions.assertArrayEquals(new String[]{Column.fold(description(7))},
+                column.foldedElements(column.code(7)));
+    }
+
+    @Test
+    void packedColumnsAreAppendedAndCopied() {
+        Column column = new Column("description");
+        Column other = new Column("description");
+        Column shortText = new Column("description");
+        for (int i = 0; i < 1100; i++) {
+            column.set(i, description(i));
+            other.set(i, description(i + 1100));
+        }
+        shortText.set(0, "short");
+        shortText.set(1, 42L);
+        column.append(other, 1100);
+        column.append(shortText, 2200);
+        Column copy = column.copy();
+        copy.set(2202, description(0));
+        for (Column each : new Column[]{column, copy}) {
+            Assertions.assertEquals(description(1500), each.value(each.code(1500)));
+            Assertions.assertEquals("short", each.value(each.code(2200)));
+            Assertions.assertEquals(42L, each.value(each.code(2201)));
+        }
+        Assertions.assertEquals(description(0), copy.value(copy.code(2202)));
+        Assertions.assertEquals(Column.MISSING, column.code(2202));
+    }
+}